@@ -0,0 +1,118 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for ConditionalSupplier. The input is read from a mutable field
+ * so that the comparison cannot be constant-folded by the JIT.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConditionalSupplierBenchmark {
+
+    private Integer input = 11;
+    private Supplier<String> equalsChain;
+    private Supplier<String> compareChain;
+    private Supplier<String> compiledCompareChain;
+
+    @Setup
+    public void setup() {
+        final Supplier<Integer> in = () -> this.input;
+
+        this.equalsChain = ConditionalSupplier.<Integer, String> If(in)
+                .Equals(11)
+                .Then("equal")
+                .Else("not equal");
+
+        this.compareChain = ConditionalSupplier.<Integer, String> If(in)
+                .GreaterThan(10)
+                .Then("greater")
+                .Else("not greater");
+
+        this.compiledCompareChain = ConditionalSupplier.<Integer, String> If(in)
+                .GreaterThan(10)
+                .Then("greater")
+                .Else("not greater")
+                .compile();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String getEquals() {
+        return this.equalsChain.get();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String getEqualsContended() {
+        return this.equalsChain.get();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String getGreaterThan() {
+        return this.compareChain.get();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String getGreaterThanContended() {
+        return this.compareChain.get();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String getCompiledGreaterThan() {
+        return this.compiledCompareChain.get();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String getCompiledGreaterThanContended() {
+        return this.compiledCompareChain.get();
+    }
+}
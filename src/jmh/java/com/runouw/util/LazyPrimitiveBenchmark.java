@@ -0,0 +1,139 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the primitive Lazy variants. The boxed get methods are
+ * measured alongside the primitive getters so that boxing shows up in the
+ * allocation profile.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LazyPrimitiveBenchmark {
+
+    private LazyInt lazyInt;
+    private LazyLong lazyLong;
+    private LazyDouble lazyDouble;
+    private LazyBoolean lazyBoolean;
+
+    @Setup
+    public void setup() {
+        this.lazyInt = new LazyInt(() -> 1024);
+        this.lazyInt.getAsInt();
+        this.lazyLong = new LazyLong(() -> 1L << 40);
+        this.lazyLong.getAsLong();
+        this.lazyDouble = new LazyDouble(() -> Math.PI);
+        this.lazyDouble.getAsDouble();
+        this.lazyBoolean = new LazyBoolean(() -> true);
+        this.lazyBoolean.getAsBoolean();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int getAsInt() {
+        return this.lazyInt.getAsInt();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int getAsIntContended() {
+        return this.lazyInt.getAsInt();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Integer getBoxedInt() {
+        return this.lazyInt.get();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long getAsLong() {
+        return this.lazyLong.getAsLong();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long getAsLongContended() {
+        return this.lazyLong.getAsLong();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Long getBoxedLong() {
+        return this.lazyLong.get();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public double getAsDouble() {
+        return this.lazyDouble.getAsDouble();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public double getAsDoubleContended() {
+        return this.lazyDouble.getAsDouble();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Double getBoxedDouble() {
+        return this.lazyDouble.get();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean getAsBoolean() {
+        return this.lazyBoolean.getAsBoolean();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean getAsBooleanContended() {
+        return this.lazyBoolean.getAsBoolean();
+    }
+}
@@ -0,0 +1,126 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for Replaceable. The contended group runs several readers
+ * against a single writer on the same instance.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplaceableBenchmark {
+
+    private final String defaultValue = "default";
+    private final String replacedValue = "replaced";
+    private Replaceable<String> defaulted;
+    private Replaceable<String> replaced;
+    private Replaceable<String> toggled;
+    private boolean toggle;
+
+    @Setup
+    public void setup() {
+        this.defaulted = new Replaceable<>(this.defaultValue);
+        this.replaced = new Replaceable<>(this.defaultValue);
+        this.replaced.set(this.replacedValue);
+        this.toggled = new Replaceable<>(this.defaultValue);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String getDefault() {
+        return this.defaulted.get();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String getReplaced() {
+        return this.replaced.get();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String getReplacedContended() {
+        return this.replaced.get();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean isDefault() {
+        return this.replaced.isDefault();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean isDefaultContended() {
+        return this.replaced.isDefault();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Replaceable<String> set() {
+        this.toggle = !this.toggle;
+        this.toggled.set(this.toggle ? this.replacedValue : null);
+        return this.toggled;
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public String readWriteGet() {
+        return this.toggled.get();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public Replaceable<String> readWriteSet() {
+        this.toggle = !this.toggle;
+        this.toggled.set(this.toggle ? this.replacedValue : null);
+        return this.toggled;
+    }
+}
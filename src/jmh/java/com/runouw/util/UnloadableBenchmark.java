@@ -0,0 +1,110 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for Unloadable under each retain policy. The restore function
+ * returns an object that is strongly held by the benchmark, so salvagedReload
+ * and deferredUnload always take the salvage path while eagerUnload always
+ * takes the restore path.
+ * <p>
+ * Unloadable is not thread-safe; the contended benchmarks measure the cost of
+ * sharing one regardless.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnloadableBenchmark {
+
+    @Param({"eagerUnload", "salvagedReload", "deferredUnload"})
+    public String policy;
+
+    private final Object value = new Object();
+    private Unloadable<Object> unloadable;
+
+    @Setup
+    public void setup() {
+        switch (this.policy) {
+            case "eagerUnload":
+                this.unloadable = Unloadable.eagerUnload(this.value, () -> this.value);
+                break;
+            case "salvagedReload":
+                this.unloadable = Unloadable.salvagedReload(this.value, () -> this.value);
+                break;
+            case "deferredUnload":
+                this.unloadable = Unloadable.deferredUnload(this.value, () -> this.value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown policy: " + this.policy);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object get() {
+        return this.unloadable.get();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object getContended() {
+        return this.unloadable.get();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object unloadAndGet() {
+        this.unloadable.unload();
+        return this.unloadable.get();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object unloadAndGetContended() {
+        this.unloadable.unload();
+        return this.unloadable.get();
+    }
+}
@@ -0,0 +1,405 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * AsyncLazy is a lazy initialization wrapper that constructs its object on an
+ * Executor. Construction may be started ahead of time with prewarm so that
+ * the first caller of get does not pay the construction cost.
+ *
+ * @author zmichaels
+ * @param <T> the type of the object.
+ * @since 26.10.16
+ */
+public class AsyncLazy<T> implements Deferrable<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncLazy.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<AsyncLazy, CompletableFuture> FUTURE
+            = AtomicReferenceFieldUpdater.newUpdater(AsyncLazy.class, CompletableFuture.class, "future");
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<AsyncLazy, FailureCache> FAILURES
+            = AtomicReferenceFieldUpdater.newUpdater(AsyncLazy.class, FailureCache.class, "failures");
+
+    private final Supplier<T> constructor;
+    private final Executor executor;
+    private volatile CompletableFuture<T> future = null;
+    private volatile FailureCache<T> failures = null;
+    private volatile Consumer<T> onInitialize = null;
+
+    /**
+     * Sets a callback method for when the object is initialized. The callback
+     * is executed on the thread that constructed the object after the object
+     * has been published, so the callback may safely call get.
+     *
+     * @param callback the method to call when the object is initialized.
+     * @since 26.10.16
+     */
+    public void setOnInitialize(final Consumer<T> callback) {
+        this.onInitialize = callback;
+    }
+
+    /**
+     * Sets how long to wait before constructing the object again after the
+     * constructor throws. Until then, get throws an IllegalStateException
+     * caused by that exception, or returns the fallback value if one is set;
+     * afterwards, the next call starts a new construction. Null retries on
+     * every call. Without a backoff policy or a fallback, which is the
+     * default, a failure is cached until restore is called.
+     *
+     * @param policy the backoff policy.
+     * @since 26.10.16
+     */
+    public void setBackoff(final BackoffPolicy policy) {
+        this.failures().setPolicy(policy);
+    }
+
+    /**
+     * Sets a supplier for the value returned by get while the constructor is
+     * failing. Fallback values are not stored; the object stays uninitialized
+     * until the constructor succeeds.
+     *
+     * @param fallback the fallback supplier. Null throws instead.
+     * @since 26.10.16
+     */
+    public void setFallback(final Supplier<T> fallback) {
+        this.failures().setFallback(fallback);
+    }
+
+    /**
+     * Sets a callback for when the constructor throws. The callback is
+     * executed on the thread that called the constructor.
+     *
+     * @param listener the callback.
+     * @since 26.10.16
+     */
+    public void setOnFailure(final FailureListener listener) {
+        this.failures().setListener(listener);
+    }
+
+    /**
+     * Retrieves the number of times the constructor failed since it last
+     * succeeded.
+     *
+     * @return the number of consecutive failures.
+     * @since 26.10.16
+     */
+    public int getConsecutiveFailures() {
+        final FailureCache<T> failures = this.failures;
+
+        return failures == null ? 0 : failures.getConsecutiveFailures();
+    }
+
+    /**
+     * Checks if calls are currently rejected because the constructor failed.
+     *
+     * @return true if the backoff window has not elapsed.
+     * @since 26.10.16
+     */
+    public boolean isBackingOff() {
+        final FailureCache<T> failures = this.failures;
+
+        return failures != null && failures.isBackingOff();
+    }
+
+    private FailureCache<T> failures() {
+        final FailureCache<T> failures = this.failures;
+
+        if (failures != null) {
+            return failures;
+        }
+
+        FAILURES.compareAndSet(this, null, new FailureCache<>());
+        return this.failures;
+    }
+
+    /**
+     * Constructs a new asynchronous Lazy initialization object. Construction
+     * does not start until either prewarm or get is called.
+     *
+     * @param constructor the constructor for the object.
+     * @param executor the executor to run the constructor on.
+     * @since 26.10.16
+     */
+    public AsyncLazy(final Supplier<T> constructor, final Executor executor) {
+        this.constructor = Objects.requireNonNull(constructor);
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Constructs a new asynchronous Lazy initialization object and starts
+     * constructing the object immediately.
+     *
+     * @param <T> the type of the object.
+     * @param constructor the constructor for the object.
+     * @param executor the executor to run the constructor on.
+     * @return the AsyncLazy object.
+     * @since 26.10.16
+     */
+    public static <T> AsyncLazy<T> eager(final Supplier<T> constructor, final Executor executor) {
+        return new AsyncLazy<>(constructor, executor).prewarm();
+    }
+
+    /**
+     * Starts constructing the object on the executor if construction has not
+     * already been started.
+     *
+     * @return self reference.
+     * @since 26.10.16
+     */
+    public AsyncLazy<T> prewarm() {
+        this.started();
+        return this;
+    }
+
+    /**
+     * Retrieves the future of the object. Construction is started if it has
+     * not already been started. The returned future is a dependent copy;
+     * completing or cancelling it does not affect this AsyncLazy.
+     *
+     * @return the future that completes with the object.
+     * @since 26.10.16
+     */
+    public CompletableFuture<T> future() {
+        return this.started().thenApply(Function.identity());
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<T> started() {
+        final CompletableFuture<T> current = this.future;
+
+        if (current != null && !this.isRetryDue(current)) {
+            return current;
+        }
+
+        final CompletableFuture<T> started = new CompletableFuture<>();
+
+        if (FUTURE.compareAndSet(this, current, started)) {
+            this.start(started);
+            return started;
+        } else {
+            return this.future;
+        }
+    }
+
+    /**
+     * Checks if a failed construction should be started again. A failure is
+     * only retried once a backoff policy or a fallback is set and the backoff
+     * window has elapsed.
+     */
+    private boolean isRetryDue(final CompletableFuture<T> current) {
+        final FailureCache<T> failures = this.failures;
+
+        return failures != null
+                && failures.isRetryEnabled()
+                && current.isCompletedExceptionally()
+                && !failures.isBackingOff();
+    }
+
+    private void start(final CompletableFuture<T> target) {
+        try {
+            this.executor.execute(() -> this.construct(target));
+        } catch (RuntimeException ex) {
+            this.failed(target, ex);
+        }
+    }
+
+    private void construct(final CompletableFuture<T> target) {
+        final T value;
+
+        try {
+            value = this.constructor.get();
+        } catch (RuntimeException ex) {
+            this.failed(target, ex);
+            return;
+        } catch (Throwable ex) {
+            target.completeExceptionally(ex);
+            return;
+        }
+
+        final FailureCache<T> failures = this.failures;
+
+        if (failures != null) {
+            failures.succeed();
+        }
+
+        target.complete(value);
+
+        final Consumer<T> callback = this.onInitialize;
+
+        if (callback != null) {
+            try {
+                callback.accept(value);
+            } catch (RuntimeException ex) {
+                LOGGER.error("Initialization callback failed!", ex);
+            }
+        }
+    }
+
+    private void failed(final CompletableFuture<T> target, final RuntimeException ex) {
+        final FailureCache<T> failures = this.failures;
+
+        // the failure is recorded before the future completes, so a caller
+        // that sees the failed future also sees the backoff window.
+        if (failures != null) {
+            failures.fail(ex);
+        }
+
+        target.completeExceptionally(ex);
+    }
+
+    /**
+     * Retrieves the object if it has been constructed or the fallback value if
+     * it has not. This never blocks, but it will start construction if it has
+     * not been started. A failed construction is not retried until restore is
+     * called or, if a backoff policy or fallback is set, until the backoff
+     * window has elapsed.
+     *
+     * @param fallback the value to return if the object is not yet available.
+     * @return the object or the fallback value.
+     * @since 26.10.16
+     */
+    public T getNow(final T fallback) {
+        final CompletableFuture<T> current = this.started();
+
+        return isSuccess(current)
+                ? current.join()
+                : fallback;
+    }
+
+    /**
+     * Retrieves the object, blocking until construction has finished.
+     *
+     * @return the object.
+     * @throws java.util.concurrent.CompletionException if the constructor
+     * failed and there is no fallback. Without a backoff policy or a
+     * fallback, the failure is rethrown until restore is called.
+     * @throws IllegalStateException if the call is rejected within the
+     * backoff window and there is no fallback.
+     * @since 26.10.16
+     */
+    @Override
+    public T get() {
+        final FailureCache<T> failures = this.failures;
+
+        if (failures == null) {
+            return this.started().join();
+        }
+
+        final CompletableFuture<T> previous = this.future;
+
+        // only calls after the failure are rejected; the call that started
+        // the failed construction receives its exception.
+        if (previous != null && previous.isCompletedExceptionally()) {
+            final FailureCache.State backoff = failures.backoff();
+
+            if (backoff != null) {
+                return failures.reject(backoff);
+            }
+        }
+
+        try {
+            return this.started().join();
+        } catch (CompletionException ex) {
+            return failures.fallback(ex);
+        }
+    }
+
+    /**
+     * Constructs a new instance of the object on the executor and blocks until
+     * it is available. Calls to getNow continue to return the previous object
+     * until the new one has been constructed. This also clears a cached
+     * construction failure.
+     *
+     * @return the new instance of the object.
+     * @since 26.10.16
+     */
+    @Override
+    public T restore() {
+        final CompletableFuture<T> previous = this.future;
+
+        if (previous != null && isSuccess(previous)) {
+            LOGGER.warn("Restore called when object has already been initialized!");
+        }
+
+        final CompletableFuture<T> restored = new CompletableFuture<>();
+
+        this.start(restored);
+
+        try {
+            return restored.join();
+        } finally {
+            // a future installed by a concurrent get or retry since is kept.
+            if (previous == null || !isSuccess(previous) || isSuccess(restored)) {
+                FUTURE.compareAndSet(this, previous, restored);
+            }
+        }
+    }
+
+    private static boolean isSuccess(final CompletableFuture<?> future) {
+        return future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    /**
+     * Checks if the object has been constructed successfully.
+     *
+     * @return true if the object is available without blocking.
+     * @since 26.10.16
+     */
+    public boolean isInitialized() {
+        final CompletableFuture<T> current = this.future;
+
+        return current != null && isSuccess(current);
+    }
+
+    /**
+     * Executes a method if the object has been constructed.
+     *
+     * @param isInitialized the method to execute if the object has been
+     * initialized.
+     * @since 26.10.16
+     */
+    public void ifInitialized(final Consumer<T> isInitialized) {
+        final CompletableFuture<T> current = this.future;
+
+        if (current != null && isSuccess(current)) {
+            isInitialized.accept(current.join());
+        }
+    }
+}
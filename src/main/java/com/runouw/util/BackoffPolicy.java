@@ -0,0 +1,119 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how long a failing constructor is left alone before it is retried.
+ * The delay after the nth consecutive failure is initial * multiplier^(n-1),
+ * capped at the maximum.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+public final class BackoffPolicy {
+
+    private final long initialNanos;
+    private final long maximumNanos;
+    private final double multiplier;
+
+    private BackoffPolicy(final long initialNanos, final long maximumNanos, final double multiplier) {
+        if (initialNanos < 0L || maximumNanos < initialNanos) {
+            throw new IllegalArgumentException("Delays must satisfy 0 <= initial <= maximum!");
+        } else if (!(multiplier >= 1.0)) {
+            throw new IllegalArgumentException("Multiplier must be at least 1!");
+        }
+
+        this.initialNanos = initialNanos;
+        this.maximumNanos = maximumNanos;
+        this.multiplier = multiplier;
+    }
+
+    /**
+     * Constructs a BackoffPolicy that doubles the delay after each
+     * consecutive failure.
+     *
+     * @param initial the delay after the first failure.
+     * @param maximum the longest delay.
+     * @param unit the unit of the delays.
+     * @return the BackoffPolicy.
+     * @since 26.10.16
+     */
+    public static BackoffPolicy exponential(final long initial, final long maximum, final TimeUnit unit) {
+        return exponential(initial, maximum, unit, 2.0);
+    }
+
+    /**
+     * Constructs a BackoffPolicy that multiplies the delay after each
+     * consecutive failure.
+     *
+     * @param initial the delay after the first failure.
+     * @param maximum the longest delay.
+     * @param unit the unit of the delays.
+     * @param multiplier the factor the delay grows by. Must be at least 1.
+     * @return the BackoffPolicy.
+     * @since 26.10.16
+     */
+    public static BackoffPolicy exponential(final long initial, final long maximum, final TimeUnit unit, final double multiplier) {
+        return new BackoffPolicy(unit.toNanos(initial), unit.toNanos(maximum), multiplier);
+    }
+
+    /**
+     * Constructs a BackoffPolicy that waits the same time after every
+     * failure.
+     *
+     * @param delay the delay after each failure.
+     * @param unit the unit of the delay.
+     * @return the BackoffPolicy.
+     * @since 26.10.16
+     */
+    public static BackoffPolicy fixed(final long delay, final TimeUnit unit) {
+        return new BackoffPolicy(unit.toNanos(delay), unit.toNanos(delay), 1.0);
+    }
+
+    /**
+     * Retrieves the delay after a number of consecutive failures.
+     *
+     * @param consecutiveFailures the number of consecutive failures.
+     * @param unit the unit to return the delay in.
+     * @return the delay, or 0 if there were no failures.
+     * @since 26.10.16
+     */
+    public long getDelay(final int consecutiveFailures, final TimeUnit unit) {
+        return unit.convert(this.delayNanos(consecutiveFailures), TimeUnit.NANOSECONDS);
+    }
+
+    long delayNanos(final int consecutiveFailures) {
+        if (consecutiveFailures <= 0) {
+            return 0L;
+        }
+
+        final double delay = this.initialNanos * Math.pow(this.multiplier, consecutiveFailures - 1);
+
+        return delay >= this.maximumNanos ? this.maximumNanos : (long) delay;
+    }
+}
@@ -0,0 +1,301 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A thread-safe variant of LazyInt. The constructor is called exactly once
+ * regardless of how many threads request the value at the same time. The
+ * value is never boxed; once initialized, getAsInt is a volatile read of the
+ * state word followed by a read of the value.
+ * <p>
+ * A constructor that calls getAsInt on the same object throws an
+ * IllegalStateException instead of waiting for itself.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+public class ConcurrentLazyInt implements DeferrableInt {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentLazyInt.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ConcurrentLazyInt, FailureCache> FAILURES
+            = AtomicReferenceFieldUpdater.newUpdater(ConcurrentLazyInt.class, FailureCache.class, "failures");
+
+    private static final int UNINITIALIZED = 0;
+    private static final int INITIALIZING = 1;
+    private static final int INITIALIZED = 2;
+
+    private static final AtomicIntegerFieldUpdater<ConcurrentLazyInt> STATE
+            = AtomicIntegerFieldUpdater.newUpdater(ConcurrentLazyInt.class, "state");
+
+    private final Object lock = new Object();
+    // the thread running the constructor, used to detect a recursive get.
+    private volatile Thread loader = null;
+    private volatile int state = UNINITIALIZED;
+    private int instance;
+    private final IntSupplier constructor;
+    private volatile FailureCache<Integer> failures = null;
+    private volatile IntConsumer onInitialize = null;
+
+    /**
+     * Sets a callback method for when the value is initialized. The callback
+     * is executed on the thread that computed the value.
+     *
+     * @param callback the method to call when the value is initialized.
+     * @since 26.10.16
+     */
+    public void setOnInitialize(final IntConsumer callback) {
+        this.onInitialize = callback;
+    }
+
+    /**
+     * Sets how long to wait before calling the constructor again after it
+     * throws. Until then, getAsInt throws an IllegalStateException caused by
+     * that exception, or returns the fallback value if one is set. Null
+     * retries on every call, which is the default.
+     *
+     * @param policy the backoff policy.
+     * @since 26.10.16
+     */
+    public void setBackoff(final BackoffPolicy policy) {
+        this.failures().setPolicy(policy);
+    }
+
+    /**
+     * Sets a supplier for the value returned while the constructor is
+     * failing. Fallback values are not stored; the value stays uninitialized
+     * until the constructor succeeds.
+     *
+     * @param fallback the fallback supplier. Null throws instead.
+     * @since 26.10.16
+     */
+    public void setFallback(final IntSupplier fallback) {
+        this.failures().setFallback(fallback == null ? null : fallback::getAsInt);
+    }
+
+    /**
+     * Sets a callback for when the constructor throws. The callback is
+     * executed on the thread that called the constructor.
+     *
+     * @param listener the callback.
+     * @since 26.10.16
+     */
+    public void setOnFailure(final FailureListener listener) {
+        this.failures().setListener(listener);
+    }
+
+    /**
+     * Retrieves the number of times the constructor failed since it last
+     * succeeded.
+     *
+     * @return the number of consecutive failures.
+     * @since 26.10.16
+     */
+    public int getConsecutiveFailures() {
+        final FailureCache<Integer> failures = this.failures;
+
+        return failures == null ? 0 : failures.getConsecutiveFailures();
+    }
+
+    /**
+     * Checks if calls are currently rejected because the constructor failed.
+     *
+     * @return true if the backoff window has not elapsed.
+     * @since 26.10.16
+     */
+    public boolean isBackingOff() {
+        final FailureCache<Integer> failures = this.failures;
+
+        return failures != null && failures.isBackingOff();
+    }
+
+    private FailureCache<Integer> failures() {
+        final FailureCache<Integer> failures = this.failures;
+
+        if (failures != null) {
+            return failures;
+        }
+
+        FAILURES.compareAndSet(this, null, new FailureCache<>());
+        return this.failures;
+    }
+
+    /**
+     * Constructs a new thread-safe lazily initialized int.
+     *
+     * @param constructor the function that computes the value.
+     * @since 26.10.16
+     */
+    public ConcurrentLazyInt(final IntSupplier constructor) {
+        this.constructor = Objects.requireNonNull(constructor);
+    }
+
+    /**
+     * Checks if the value has been initialized.
+     *
+     * @return true if it has been initialized.
+     * @since 26.10.16
+     */
+    public boolean isInitialized() {
+        return this.state == INITIALIZED;
+    }
+
+    @Override
+    public int getAsInt() {
+        return this.state == INITIALIZED
+                ? this.instance
+                : this.initialize();
+    }
+
+    private int initialize() {
+        while (true) {
+            final int current = this.state;
+
+            if (current == INITIALIZED) {
+                return this.instance;
+            } else if (current == UNINITIALIZED) {
+                if (STATE.compareAndSet(this, UNINITIALIZED, INITIALIZING)) {
+                    return this.construct(UNINITIALIZED);
+                }
+            } else {
+                this.awaitConstruction();
+            }
+        }
+    }
+
+    @Override
+    public int restore() {
+        while (true) {
+            final int current = this.state;
+
+            if (current == INITIALIZING) {
+                this.awaitConstruction();
+            } else if (STATE.compareAndSet(this, current, INITIALIZING)) {
+                if (current == INITIALIZED) {
+                    LOGGER.warn("Restore called when object has already been initialized!");
+                }
+
+                return this.construct(current);
+            }
+        }
+    }
+
+    private int construct(final int previousState) {
+        this.loader = Thread.currentThread();
+
+        final FailureCache<Integer> failures = this.failures;
+        final FailureCache.State backoff = failures == null ? null : failures.backoff();
+
+        if (backoff != null) {
+            this.publish(previousState);
+            return failures.reject(backoff);
+        }
+
+        final int value;
+
+        try {
+            value = this.constructor.getAsInt();
+        } catch (RuntimeException ex) {
+            this.publish(previousState);
+
+            if (failures == null) {
+                throw ex;
+            }
+
+            return failures.failed(ex);
+        } catch (Error ex) {
+            this.publish(previousState);
+            throw ex;
+        }
+
+        if (failures != null) {
+            failures.succeed();
+        }
+
+        this.instance = value;
+        this.publish(INITIALIZED);
+
+        final IntConsumer callback = this.onInitialize;
+
+        if (callback != null) {
+            callback.accept(value);
+        }
+
+        return value;
+    }
+
+    private void publish(final int newState) {
+        this.loader = null;
+        this.state = newState;
+
+        synchronized (this.lock) {
+            this.lock.notifyAll();
+        }
+    }
+
+    private void awaitConstruction() {
+        if (this.loader == Thread.currentThread()) {
+            throw new IllegalStateException("Recursive get from the constructor!");
+        }
+
+        boolean interrupted = false;
+
+        synchronized (this.lock) {
+            while (this.state == INITIALIZING) {
+                try {
+                    this.lock.wait();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Executes a method if the value has been initialized.
+     *
+     * @param isInit the method to execute if the value has been initialized.
+     * @since 26.10.16
+     */
+    public void ifInitialized(final IntConsumer isInit) {
+        if (this.state == INITIALIZED) {
+            isInit.accept(this.instance);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * A thread-safe variant of Replaceable. The replaced value and its version
+ * are held together in an immutable snapshot that is swapped atomically, so
+ * reads are a single volatile read and never block. Each change increments
+ * the version, which lets readers detect that the value changed between two
+ * reads and lets writers perform versioned compare-and-set updates.
+ * <p>
+ * As with Replaceable, null represents the default value.
+ *
+ * @author zmichaels
+ * @param <T> the internal type wrapped by the ConcurrentReplaceable.
+ * @since 26.10.16
+ */
+public class ConcurrentReplaceable<T> implements Supplier<T> {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ConcurrentReplaceable, Snapshot> CURRENT
+            = AtomicReferenceFieldUpdater.newUpdater(ConcurrentReplaceable.class, Snapshot.class, "current");
+
+    private static final class Snapshot<T> {
+
+        private final T replacedValue;
+        private final long version;
+
+        private Snapshot(final T replacedValue, final long version) {
+            this.replacedValue = replacedValue;
+            this.version = version;
+        }
+    }
+
+    private final Supplier<T> defaultSupplier;
+    private volatile Snapshot<T> current = new Snapshot<>(null, 0L);
+    private volatile Consumer<T> onReplaceCallback = null;
+    private volatile WrapperMetrics metrics = null;
+
+    /**
+     * Constructs a ConcurrentReplaceable container wrapped around a supplier
+     * to the default value. The supplier must be safe to call from any
+     * thread.
+     *
+     * @param defaultSupplier supplier to the default value.
+     * @since 26.10.16
+     */
+    public ConcurrentReplaceable(final Supplier<T> defaultSupplier) {
+        this.defaultSupplier = Objects.requireNonNull(defaultSupplier);
+    }
+
+    /**
+     * Constructs a ConcurrentReplaceable container wrapped around the
+     * specified default value.
+     *
+     * @param defaultValue the default value.
+     * @since 26.10.16
+     */
+    public ConcurrentReplaceable(final T defaultValue) {
+        this.defaultSupplier = Singletons.of(defaultValue);
+    }
+
+    /**
+     * Constructs a ConcurrentReplaceable object that has the default value of
+     * null.
+     *
+     * @param <T> the type of the internal object.
+     * @return the ConcurrentReplaceable object.
+     * @since 26.10.16
+     */
+    public static <T> ConcurrentReplaceable<T> nullDefault() {
+        return new ConcurrentReplaceable<>((T) null);
+    }
+
+    /**
+     * Sets a callback for when the contained value changes. The callback is
+     * executed exactly once for each successful change, on the thread that
+     * made the change.
+     *
+     * @param callback the callback to run if the contained value changes.
+     * @since 26.10.16
+     */
+    public void setOnReplace(final Consumer<T> callback) {
+        this.onReplaceCallback = callback;
+    }
+
+    /**
+     * Sets the metrics that replacements are recorded into. Null disables
+     * metrics.
+     *
+     * @param metrics the metrics to record into.
+     * @since 26.10.16
+     */
+    public void setMetrics(final WrapperMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    private T resolve(final Snapshot<T> snapshot) {
+        return snapshot.replacedValue != null
+                ? snapshot.replacedValue
+                : this.defaultSupplier.get();
+    }
+
+    /**
+     * Retrieves the replaced value or the default value.
+     *
+     * @return the value.
+     * @since 26.10.16
+     */
+    @Override
+    public T get() {
+        return this.resolve(this.current);
+    }
+
+    /**
+     * Retrieves the value along with the version it belongs to.
+     *
+     * @param versionHolder an array of at least one element; the version is
+     * stored in element 0.
+     * @return the value.
+     * @since 26.10.16
+     */
+    public T get(final long[] versionHolder) {
+        final Snapshot<T> snapshot = this.current;
+
+        versionHolder[0] = snapshot.version;
+        return this.resolve(snapshot);
+    }
+
+    /**
+     * Retrieves the version of the value. The version starts at 0 and is
+     * incremented every time the value changes.
+     *
+     * @return the version.
+     * @since 26.10.16
+     */
+    public long getVersion() {
+        return this.current.version;
+    }
+
+    /**
+     * Checks if the value was set. This will return true even if the value was
+     * replaced with a value equivalent to the default value.
+     *
+     * @return true if the value was set.
+     * @since 26.10.16
+     */
+    public boolean isReplaced() {
+        return this.current.replacedValue != null;
+    }
+
+    /**
+     * Executes a callback if the internal value is not the default value.
+     *
+     * @param isReplaced the function to execute if the value was changed.
+     * @since 26.10.16
+     */
+    public void ifReplaced(final Consumer<T> isReplaced) {
+        final T replacedValue = this.current.replacedValue;
+
+        if (replacedValue != null) {
+            isReplaced.accept(replacedValue);
+        }
+    }
+
+    /**
+     * Checks if the value is equivalent to the default value.
+     *
+     * @return true if the value is equivalent to the default value.
+     * @since 26.10.16
+     */
+    public boolean isDefault() {
+        final T replacedValue = this.current.replacedValue;
+
+        return replacedValue == null || replacedValue.equals(this.defaultSupplier.get());
+    }
+
+    /**
+     * Replaces the value. Assigning null has the same effect as calling
+     * revertToDefault.
+     *
+     * @param replacedValue the value to set.
+     * @since 26.10.16
+     */
+    public void set(final T replacedValue) {
+        this.getAndSet(replacedValue);
+    }
+
+    /**
+     * Sets the value contained by ConcurrentReplaceable with the default.
+     *
+     * @since 26.10.16
+     */
+    public void revertToDefault() {
+        this.set(null);
+    }
+
+    /**
+     * Replaces the value and returns the value it replaced.
+     *
+     * @param replacedValue the value to set. Null reverts to the default.
+     * @return the previous value; the default value if it was not replaced.
+     * @since 26.10.16
+     */
+    public T getAndSet(final T replacedValue) {
+        while (true) {
+            final Snapshot<T> snapshot = this.current;
+
+            if (this.swap(snapshot, replacedValue)) {
+                return this.resolve(snapshot);
+            }
+        }
+    }
+
+    /**
+     * Replaces the value if the currently replaced value is the expected
+     * object. Objects are compared by identity, and null means that the value
+     * is not replaced.
+     *
+     * @param expect the expected replaced value.
+     * @param update the value to set. Null reverts to the default.
+     * @return true if the value was updated.
+     * @since 26.10.16
+     */
+    public boolean compareAndSet(final T expect, final T update) {
+        while (true) {
+            final Snapshot<T> snapshot = this.current;
+
+            if (snapshot.replacedValue != expect) {
+                return false;
+            } else if (this.swap(snapshot, update)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Replaces the value if it has not changed since the expected version was
+     * read.
+     *
+     * @param expectedVersion the version the update is based on.
+     * @param update the value to set. Null reverts to the default.
+     * @return true if the value was updated.
+     * @since 26.10.16
+     */
+    public boolean compareAndSet(final long expectedVersion, final T update) {
+        final Snapshot<T> snapshot = this.current;
+
+        return snapshot.version == expectedVersion && this.swap(snapshot, update);
+    }
+
+    /**
+     * Atomically replaces the value with the result of a function. The
+     * function may be called more than once if other threads change the value
+     * at the same time, so it should be free of side effects.
+     *
+     * @param update function that maps the current value to the new value.
+     * Returning null reverts to the default.
+     * @return the new value.
+     * @since 26.10.16
+     */
+    public T updateAndGet(final UnaryOperator<T> update) {
+        while (true) {
+            final Snapshot<T> snapshot = this.current;
+            final T updated = update.apply(this.resolve(snapshot));
+
+            if (this.swap(snapshot, updated)) {
+                return updated != null ? updated : this.defaultSupplier.get();
+            }
+        }
+    }
+
+    private boolean swap(final Snapshot<T> expected, final T replacedValue) {
+        if (expected.replacedValue == replacedValue) {
+            // nothing changes; there is nothing to publish or notify.
+            return this.current == expected;
+        }
+
+        if (!CURRENT.compareAndSet(this, expected, new Snapshot<>(replacedValue, expected.version + 1L))) {
+            return false;
+        }
+
+        final WrapperMetrics metrics = this.metrics;
+
+        if (metrics != null) {
+            metrics.recordReplace();
+        }
+
+        if (EventLog.ENABLED) {
+            EventLog.record(EventLog.Type.REPLACE, this, 0L);
+        }
+
+        final Consumer<T> callback = this.onReplaceCallback;
+
+        if (callback != null) {
+            callback.accept(replacedValue != null ? replacedValue : this.defaultSupplier.get());
+        }
+
+        return true;
+    }
+}
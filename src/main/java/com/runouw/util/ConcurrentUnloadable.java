@@ -0,0 +1,733 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A thread-safe variant of Unloadable. Reading a loaded object is a single
+ * volatile read. When the object is not loaded, exactly one thread salvages
+ * or restores it while every other thread that requests it waits for that
+ * load instead of running the restore function again. unload may be called
+ * from any thread; readers that already hold the object keep it.
+ * <p>
+ * The restore function must not return null, and must not call get on the
+ * same ConcurrentUnloadable; doing so throws IllegalStateException instead of
+ * waiting for itself. If it throws,
+ * every thread waiting on that load receives the exception and the next
+ * request tries again, unless a backoff policy is set; see setBackoff.
+ *
+ * @author zmichaels
+ * @param <T> the internal object to hold.
+ * @since 26.10.16
+ */
+public class ConcurrentUnloadable<T> implements Supplier<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentUnloadable.class);
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ConcurrentUnloadable, Object> INSTANCE
+            = AtomicReferenceFieldUpdater.newUpdater(ConcurrentUnloadable.class, Object.class, "instance");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ConcurrentUnloadable, CompletableFuture> LOADING
+            = AtomicReferenceFieldUpdater.newUpdater(ConcurrentUnloadable.class, CompletableFuture.class, "loading");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ConcurrentUnloadable, Reference> RETAINED
+            = AtomicReferenceFieldUpdater.newUpdater(ConcurrentUnloadable.class, Reference.class, "retainedReference");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ConcurrentUnloadable, FailureCache> FAILURES
+            = AtomicReferenceFieldUpdater.newUpdater(ConcurrentUnloadable.class, FailureCache.class, "failures");
+
+    private volatile T instance;
+    private volatile CompletableFuture<T> loading = null;
+    // the thread running the load in flight, used to detect a recursive get.
+    private volatile Thread loader = null;
+    private volatile Reference<T> retainedReference = null;
+    private final Supplier<T> restoreFunction;
+    private final Unloadable.RetainPolicy retainPolicy;
+    private volatile Consumer<T> onReload = null;
+    private volatile Consumer<T> onUnload = null;
+    private volatile Runnable onReclaim = null;
+    private volatile boolean rewarmOnReclaim = false;
+    private volatile WrapperMetrics metrics = null;
+    private volatile IdleTimeout idleTimeout = null;
+    private volatile FailureCache<T> failures = null;
+    volatile UnloadableManager.Entry<T> managerEntry = null;
+
+    private ConcurrentUnloadable(final T initialValue, final Supplier<T> restoreFunction, final Unloadable.RetainPolicy policy) {
+        this.instance = initialValue;
+        this.restoreFunction = Objects.requireNonNull(restoreFunction);
+        this.retainPolicy = policy;
+    }
+
+    /**
+     * Creates a ConcurrentUnloadable that discards its reference immediately.
+     *
+     * @param <T> the type of object.
+     * @param initialValue the initial value. Null results in lazy
+     * initialization.
+     * @param restoreFunction the restore function. Cannot be null.
+     * @return the object wrapped in a ConcurrentUnloadable container.
+     * @since 26.10.16
+     */
+    public static <T> ConcurrentUnloadable<T> eagerUnload(final T initialValue, final Supplier<T> restoreFunction) {
+        return new ConcurrentUnloadable<>(initialValue, restoreFunction, Unloadable.RetainPolicy.NO_RETAIN);
+    }
+
+    /**
+     * Creates a ConcurrentUnloadable that resurrects the object if it is
+     * still referenced elsewhere.
+     *
+     * @param <T> the type of object.
+     * @param initialValue the initial value. Null results in lazy
+     * initialization.
+     * @param restoreFunction the restore function. Cannot be null.
+     * @return the object wrapped in a ConcurrentUnloadable container.
+     * @since 26.10.16
+     */
+    public static <T> ConcurrentUnloadable<T> salvagedReload(final T initialValue, final Supplier<T> restoreFunction) {
+        return new ConcurrentUnloadable<>(initialValue, restoreFunction, Unloadable.RetainPolicy.WEAK_RETAIN);
+    }
+
+    /**
+     * Creates a ConcurrentUnloadable that only lets the garbage collector
+     * reclaim the unloaded object under memory pressure.
+     *
+     * @param <T> the type of object.
+     * @param initialValue the initial value. Null results in lazy
+     * initialization.
+     * @param restoreFunction the restore function. Cannot be null.
+     * @return the object wrapped in a ConcurrentUnloadable container.
+     * @since 26.10.16
+     */
+    public static <T> ConcurrentUnloadable<T> deferredUnload(final T initialValue, final Supplier<T> restoreFunction) {
+        return new ConcurrentUnloadable<>(initialValue, restoreFunction, Unloadable.RetainPolicy.SOFT_RETAIN);
+    }
+
+    /**
+     * Sets a callback for when the object is reloaded. The callback is
+     * executed once per load, on the thread that performed it, before the
+     * object is published; it therefore always runs before onUnload for the
+     * same object, and other threads wait for it. It must not call get. If it
+     * throws, the load fails and the object is discarded.
+     *
+     * @param callback the method to call when the object is reloaded.
+     * @since 26.10.16
+     */
+    public void setOnReload(final Consumer<T> callback) {
+        this.onReload = callback;
+    }
+
+    /**
+     * Sets a callback for when the object is unloaded. The callback is
+     * executed once per unload, on the thread that unloaded the object.
+     *
+     * @param callback the method to call when the object is unloaded.
+     * @since 26.10.16
+     */
+    public void setOnUnload(final Consumer<T> callback) {
+        this.onUnload = callback;
+    }
+
+    /**
+     * Sets a callback for when the garbage collector reclaims the retained
+     * object after it was unloaded. The callback is executed by whichever
+     * thread drains the reclaimed references; see Unloadable.drainReclaimed
+     * and Unloadable.startReaper. Plain Unloadables are not thread-safe and
+     * have no reclaim callback; this is only offered by ConcurrentUnloadable.
+     *
+     * @param callback the method to call when the retained object is
+     * reclaimed. Only applies to objects unloaded after it is set.
+     * @since 26.10.16
+     */
+    public void setOnReclaim(final Runnable callback) {
+        this.onReclaim = callback;
+    }
+
+    /**
+     * Sets whether the object should be restored as soon as the garbage
+     * collector reclaims the retained object. This moves the cost of
+     * restoring the object off of the next call to get and onto the thread
+     * that drains the reclaimed references.
+     *
+     * @param rewarm true if the object should be restored when reclaimed.
+     * Only applies to objects unloaded after it is set.
+     * @since 26.10.16
+     */
+    public void setRewarmOnReclaim(final boolean rewarm) {
+        this.rewarmOnReclaim = rewarm;
+    }
+
+    void onReclaimed(final Reference<?> reference) {
+        if (!RETAINED.compareAndSet(this, reference, null)) {
+            // the object was salvaged or unloaded again since.
+            return;
+        }
+
+        if (EventLog.ENABLED) {
+            EventLog.record(EventLog.Type.RECLAIM, this, 0L);
+        }
+
+        final Runnable callback = this.onReclaim;
+
+        if (callback != null) {
+            callback.run();
+        }
+
+        if (this.rewarmOnReclaim && this.instance == null) {
+            try {
+                this.get();
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Unable to rewarm reclaimed object!", ex);
+            }
+        }
+    }
+
+    /**
+     * Unloads the object once it has not been requested for a while. All
+     * idle timeouts share a single timing wheel thread with a resolution of
+     * 10 milliseconds, and get only records the wheel's current tick with a
+     * single relaxed write, so this is suitable for large numbers of
+     * ConcurrentUnloadables. The object is unloaded on the timing wheel
+     * thread; callbacks set with setOnUnload run there as well.
+     *
+     * @param timeout the time without a call to get before the object is
+     * unloaded. 0 or less disables the idle timeout.
+     * @param unit the unit of the timeout.
+     * @since 26.10.16
+     */
+    public void setIdleTimeout(final long timeout, final TimeUnit unit) {
+        final IdleTimeout previous = this.idleTimeout;
+
+        if (previous != null) {
+            previous.cancel();
+        }
+
+        if (timeout <= 0L) {
+            this.idleTimeout = null;
+        } else {
+            final IdleTimeout idle = new IdleTimeout(this, IdleTimeout.WHEEL.toTicks(timeout, unit));
+
+            this.idleTimeout = idle;
+
+            if (this.isPresent()) {
+                idle.arm();
+            }
+        }
+    }
+
+    /**
+     * Unloads a ConcurrentUnloadable once the tick of its last access is more
+     * than the timeout in the past. The timer expires at the earliest
+     * possible idle deadline and, if the object was requested since,
+     * reschedules itself from the last access instead of being moved on
+     * every get.
+     */
+    private static final class IdleTimeout extends TimingWheel.Timer {
+
+        private static final TimingWheel WHEEL = new TimingWheel("Unloadable Idle Timer", 10L, TimeUnit.MILLISECONDS);
+        private static final AtomicIntegerFieldUpdater<IdleTimeout> LAST_ACCESS
+                = AtomicIntegerFieldUpdater.newUpdater(IdleTimeout.class, "lastAccess");
+        private static final AtomicIntegerFieldUpdater<IdleTimeout> ARMED
+                = AtomicIntegerFieldUpdater.newUpdater(IdleTimeout.class, "armed");
+
+        private final WeakReference<ConcurrentUnloadable<?>> owner;
+        private final int timeout;
+        private volatile int lastAccess;
+        // 1 while the timer is scheduled; only one thread may schedule it.
+        private volatile int armed = 0;
+
+        private IdleTimeout(final ConcurrentUnloadable<?> owner, final int timeout) {
+            this.owner = new WeakReference<>(owner);
+            // the recorded tick may be up to a tick older than the access, so
+            // one more tick keeps the object from being unloaded early.
+            this.timeout = timeout + 1;
+        }
+
+        private void touch() {
+            final int now = WHEEL.now();
+
+            // the tick changes every 10 ms, so most hits only read. The wheel
+            // may briefly lag the tick recorded by arm, so the stamp never
+            // moves back.
+            if (now - this.lastAccess > 0) {
+                LAST_ACCESS.lazySet(this, now);
+            }
+        }
+
+        private void arm() {
+            // the wheel's tick stops while it has no timers, so a load reads
+            // the clock instead.
+            this.lastAccess = WHEEL.clock();
+
+            if (ARMED.compareAndSet(this, 0, 1)) {
+                WHEEL.schedule(this, this.lastAccess + this.timeout);
+            }
+        }
+
+        /**
+         * Called after the timer was disarmed. A load that found the timer
+         * still armed could not schedule it, so it is rescheduled here.
+         */
+        private int rearmIfPresent(final ConcurrentUnloadable<?> unloadable, final int now) {
+            if (unloadable != null && unloadable.isPresent() && ARMED.compareAndSet(this, 0, 1)) {
+                return this.lastAccess + this.timeout;
+            }
+
+            return now;
+        }
+
+        @Override
+        int expire(final int now) {
+            final ConcurrentUnloadable<?> unloadable = this.owner.get();
+
+            if (unloadable == null || !unloadable.isPresent()) {
+                this.armed = 0;
+                return this.rearmIfPresent(unloadable, now);
+            }
+
+            final int last = this.lastAccess;
+            final int idleDeadline = last + this.timeout;
+
+            if (idleDeadline - now > 0) {
+                return idleDeadline;
+            }
+
+            // claim the stamp; a get that raced with this check wrote a newer
+            // one and keeps the object loaded.
+            if (!LAST_ACCESS.compareAndSet(this, last, now)) {
+                return this.lastAccess + this.timeout;
+            }
+
+            // disarm first so that a reload during unload, or after a failed
+            // unload, schedules again.
+            this.armed = 0;
+            unloadable.unload();
+            return this.rearmIfPresent(unloadable, now);
+        }
+    }
+
+    /**
+     * Sets the metrics that hits, salvages, restores and unloads are
+     * recorded into. Null disables metrics.
+     *
+     * @param metrics the metrics to record into.
+     * @since 26.10.16
+     */
+    public void setMetrics(final WrapperMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets how long to wait before calling the restore function again after
+     * it throws. Until then, get still salvages a retained object, but instead
+     * of restoring it throws an IllegalStateException caused by that
+     * exception, or returns the fallback value if one is set. Null retries on
+     * every call, which is the default.
+     *
+     * @param policy the backoff policy.
+     * @since 26.10.16
+     */
+    public void setBackoff(final BackoffPolicy policy) {
+        this.failures().setPolicy(policy);
+    }
+
+    /**
+     * Sets a supplier for the value returned by get while the object cannot
+     * be restored. Fallback values are not stored; the object stays unloaded
+     * until the restore function succeeds.
+     *
+     * @param fallback the fallback supplier. Null throws instead.
+     * @since 26.10.16
+     */
+    public void setFallback(final Supplier<T> fallback) {
+        this.failures().setFallback(fallback);
+    }
+
+    /**
+     * Sets a callback for when the restore function throws. The callback is
+     * executed on the thread that called the restore function.
+     *
+     * @param listener the callback.
+     * @since 26.10.16
+     */
+    public void setOnFailure(final FailureListener listener) {
+        this.failures().setListener(listener);
+    }
+
+    /**
+     * Retrieves the number of times the restore function failed since it
+     * last succeeded.
+     *
+     * @return the number of consecutive failures.
+     * @since 26.10.16
+     */
+    public int getConsecutiveFailures() {
+        final FailureCache<T> failures = this.failures;
+
+        return failures == null ? 0 : failures.getConsecutiveFailures();
+    }
+
+    /**
+     * Checks if restores are currently rejected because the restore function
+     * failed.
+     *
+     * @return true if the backoff window has not elapsed.
+     * @since 26.10.16
+     */
+    public boolean isBackingOff() {
+        final FailureCache<T> failures = this.failures;
+
+        return failures != null && failures.isBackingOff();
+    }
+
+    private FailureCache<T> failures() {
+        final FailureCache<T> failures = this.failures;
+
+        if (failures != null) {
+            return failures;
+        }
+
+        FAILURES.compareAndSet(this, null, new FailureCache<>());
+        return this.failures;
+    }
+
+    /**
+     * Checks if the object is present in memory.
+     *
+     * @return true if the object is directly accessible.
+     * @since 26.10.16
+     */
+    public boolean isPresent() {
+        return this.instance != null;
+    }
+
+    boolean isHolding(final T value) {
+        return this.instance == value;
+    }
+
+    /**
+     * Checks if a thread is currently salvaging or restoring the object.
+     *
+     * @return true if a load is in flight.
+     * @since 26.10.16
+     */
+    public boolean isLoading() {
+        return this.loading != null;
+    }
+
+    /**
+     * Executes a callback if the contained object is currently loaded.
+     *
+     * @param onIsPresent the callback to execute if present.
+     * @since 26.10.16
+     */
+    public void ifPresent(final Consumer<T> onIsPresent) {
+        final T value = this.instance;
+
+        if (value != null) {
+            onIsPresent.accept(value);
+        }
+    }
+
+    /**
+     * Requests the internal object. The object is restored if it is not
+     * present; concurrent requests share a single restore.
+     *
+     * @return the instance of the object.
+     * @since 26.10.16
+     */
+    @Override
+    public T get() {
+        final T value = this.instance;
+
+        if (value != null) {
+            final WrapperMetrics metrics = this.metrics;
+            final UnloadableManager.Entry<T> entry = this.managerEntry;
+            final IdleTimeout idle = this.idleTimeout;
+
+            if (metrics != null) {
+                metrics.recordHit();
+            }
+
+            if (entry != null) {
+                entry.touch();
+            }
+
+            if (idle != null) {
+                idle.touch();
+            }
+
+            return value;
+        }
+
+        if (this.loader == Thread.currentThread()) {
+            throw new IllegalStateException("Recursive get from the restore function!");
+        }
+
+        final FailureCache<T> failures = this.failures;
+
+        if (failures == null) {
+            return this.load();
+        }
+
+        // every thread that shares a failed load falls back, not only the
+        // one that ran the restore function.
+        try {
+            return this.load();
+        } catch (RuntimeException ex) {
+            return failures.fallback(ex);
+        }
+    }
+
+    private T load() {
+        while (true) {
+            final T present = this.instance;
+
+            if (present != null) {
+                return present;
+            }
+
+            final CompletableFuture<T> inFlight = this.loading;
+
+            if (inFlight != null) {
+                return join(inFlight);
+            }
+
+            final CompletableFuture<T> mine = new CompletableFuture<>();
+
+            if (LOADING.compareAndSet(this, null, mine)) {
+                return this.loadAs(mine);
+            }
+        }
+    }
+
+    private T loadAs(final CompletableFuture<T> future) {
+        // a load that finished between the check and the claim has already
+        // published the object.
+        final T present = this.instance;
+
+        if (present != null) {
+            this.loading = null;
+            future.complete(present);
+            return present;
+        }
+
+        this.loader = Thread.currentThread();
+
+        final T loaded;
+
+        try {
+            loaded = this.salvageOrRestore();
+
+            final Consumer<T> callback = this.onReload;
+
+            if (callback != null) {
+                callback.accept(loaded);
+            }
+        } catch (RuntimeException | Error ex) {
+            this.loader = null;
+            this.loading = null;
+            future.completeExceptionally(ex);
+            throw ex;
+        }
+
+        // the object is published before the load is cleared so that a
+        // thread that sees no load in flight also sees the object.
+        this.instance = loaded;
+        this.loader = null;
+        this.loading = null;
+        future.complete(loaded);
+
+        final UnloadableManager.Entry<T> entry = this.managerEntry;
+
+        if (entry != null) {
+            entry.loaded(loaded);
+        }
+
+        final IdleTimeout idle = this.idleTimeout;
+
+        if (idle != null) {
+            idle.arm();
+        }
+
+        return loaded;
+    }
+
+    private T salvageOrRestore() {
+        final Reference<T> retained = this.retainedReference;
+        final T salvaged = retained == null ? null : retained.get();
+        final WrapperMetrics metrics = this.metrics;
+
+        this.retainedReference = null;
+
+        if (salvaged != null) {
+            if (metrics != null) {
+                metrics.recordSalvage();
+            }
+
+            if (EventLog.ENABLED) {
+                EventLog.record(EventLog.Type.SALVAGE, this, 0L);
+            }
+
+            return salvaged;
+        }
+
+        final FailureCache<T> failures = this.failures;
+        final FailureCache.State backoff = failures == null ? null : failures.backoff();
+
+        if (failures == null) {
+            return this.restoreObject();
+        } else if (backoff != null) {
+            throw FailureCache.rejection(backoff);
+        }
+
+        final T restored;
+
+        try {
+            restored = this.restoreObject();
+        } catch (RuntimeException ex) {
+            failures.fail(ex);
+            throw ex;
+        }
+
+        failures.succeed();
+        return restored;
+    }
+
+    private T restoreObject() {
+        final WrapperMetrics metrics = this.metrics;
+
+        if (metrics == null && !EventLog.ENABLED) {
+            return Objects.requireNonNull(this.restoreFunction.get(), "Restore function returned null!");
+        }
+
+        final long start = System.nanoTime();
+        final T restored = Objects.requireNonNull(this.restoreFunction.get(), "Restore function returned null!");
+        final long elapsed = System.nanoTime() - start;
+
+        if (metrics != null) {
+            metrics.recordRestore(elapsed);
+        }
+
+        if (EventLog.ENABLED) {
+            EventLog.record(EventLog.Type.RESTORE, this, elapsed);
+        }
+
+        return restored;
+    }
+
+    private static <T> T join(final CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            final Throwable cause = ex.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw ex;
+        }
+    }
+
+    /**
+     * Unloads the object. The next time the object is requested, it will be
+     * restored. If several threads unload the object at once, only one of
+     * them unloads it.
+     *
+     * @return true if this call unloaded the object.
+     * @since 26.10.16
+     */
+    public boolean unload() {
+        final T value = this.instance;
+
+        if (value == null) {
+            return false;
+        }
+
+        // retain before clearing so a reader that misses the object can
+        // still salvage it. The reference is only queued when something
+        // needs to happen once it is reclaimed.
+        final boolean isWatched = this.onReclaim != null || this.rewarmOnReclaim;
+
+        switch (this.retainPolicy) {
+            case WEAK_RETAIN:
+                this.retainedReference = isWatched
+                        ? new Unloadable.WeakRetained<>(value, this)
+                        : new WeakReference<>(value);
+                break;
+            case SOFT_RETAIN:
+                this.retainedReference = isWatched
+                        ? new Unloadable.SoftRetained<>(value, this)
+                        : new SoftReference<>(value);
+                break;
+            default:
+                break;
+        }
+
+        if (!INSTANCE.compareAndSet(this, value, null)) {
+            return false;
+        }
+
+        final Consumer<T> callback = this.onUnload;
+
+        if (callback != null) {
+            callback.accept(value);
+        }
+
+        final WrapperMetrics metrics = this.metrics;
+
+        if (metrics != null) {
+            metrics.recordUnload();
+        }
+
+        if (EventLog.ENABLED) {
+            EventLog.record(EventLog.Type.UNLOAD, this, 0L);
+        }
+
+        final UnloadableManager.Entry<T> entry = this.managerEntry;
+
+        if (entry != null) {
+            entry.unloaded(value);
+        }
+
+        return true;
+    }
+}
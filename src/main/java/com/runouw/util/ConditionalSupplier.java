@@ -6,7 +6,6 @@
 package com.runouw.util;
 
 import java.util.Objects;
-import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 /**
@@ -17,93 +16,150 @@ import java.util.function.Supplier;
  */
 public final class ConditionalSupplier<InType, OutType> implements Supplier<OutType> {
 
-    private final Supplier<InType> input;
-    private final Predicate<InType> test;
-    private final Supplier<OutType> output;
-    private final Supplier<OutType> elseOut;    
+    private enum Operator {
+        ALWAYS,
+        EQUALS,
+        NOT_EQUALS,
+        GREATER_THAN,
+        GREATER_THAN_OR_EQUALS,
+        LESS_THAN,
+        LESS_THAN_OR_EQUALS
+    }
 
-    private ConditionalSupplier(final Supplier<InType> input, final Predicate<InType> test, final Supplier<OutType> output, final Supplier<OutType> elseOut) {
-        this.elseOut = elseOut;
+    /**
+     * A value that is either a known constant or supplied on demand.
+     */
+    private static final class Operand<T> {
+
+        private static final Operand<Object> NULL = new Operand<>(null, true, null);
+
+        private final Supplier<T> supplier;
+        private final boolean isConstant;
+        private final T value;
+
+        private Operand(final Supplier<T> supplier, final boolean isConstant, final T value) {
+            this.supplier = supplier;
+            this.isConstant = isConstant;
+            this.value = value;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Operand<T> ofNull() {
+            return (Operand<T>) NULL;
+        }
+
+        private static <T> Operand<T> of(final T value) {
+            return value == null ? ofNull() : new Operand<>(null, true, value);
+        }
+
+        private static <T> Operand<T> from(final Supplier<T> supplier) {
+            return supplier instanceof Singletons.Constant
+                    ? of(supplier.get())
+                    : new Operand<>(supplier, false, null);
+        }
+
+        private T get() {
+            return this.isConstant ? this.value : this.supplier.get();
+        }
+
+        private Supplier<T> toSupplier() {
+            return this.isConstant ? Singletons.of(this.value) : this.supplier;
+        }
+    }
+
+    private final Operand<InType> input;
+    private final Operator operator;
+    private final Operand<InType> other;
+    private final Operand<OutType> output;
+    private final Operand<OutType> elseOut;
+
+    private ConditionalSupplier(final Operand<InType> input, final Operator operator, final Operand<InType> other, final Operand<OutType> output, final Operand<OutType> elseOut) {
         this.input = input;
-        this.test = test;
+        this.operator = operator;
+        this.other = other;
         this.output = output;
+        this.elseOut = elseOut;
     }
 
     public static <In, Out> ConditionalSupplier<In, Out> If(final Supplier<In> input) {
-        return new ConditionalSupplier<>(input, val -> true, () -> null, () -> null);
+        return new ConditionalSupplier<>(Operand.from(input), Operator.ALWAYS, Operand.ofNull(), Operand.ofNull(), Operand.ofNull());
     }
     
     public static <In, Out> ConditionalSupplier<In, Out> If(final In value) {
-        return new ConditionalSupplier<>(() -> value, val -> true, () -> null, () -> null);
+        return new ConditionalSupplier<>(Operand.of(value), Operator.ALWAYS, Operand.ofNull(), Operand.ofNull(), Operand.ofNull());
     }
     
     public static <Out> ConditionalSupplier<?, Out> Always() {
-        return new ConditionalSupplier<>(() -> null, val -> true, () -> null, () -> null);
+        return new ConditionalSupplier<>(Operand.ofNull(), Operator.ALWAYS, Operand.ofNull(), Operand.ofNull(), Operand.ofNull());
+    }
+
+    private ConditionalSupplier<InType, OutType> test(final Operator operator, final Operand<InType> other) {
+        return new ConditionalSupplier<>(this.input, operator, other, this.output, this.elseOut);
     }
     
     public ConditionalSupplier<InType, OutType> Equals(final InType other) {
-        return new ConditionalSupplier<>(input, testValue -> Objects.equals(testValue, other), output, elseOut);
+        return this.test(Operator.EQUALS, Operand.of(other));
     }
 
     public ConditionalSupplier<InType, OutType> Equals(final Supplier<InType> other) {
-        return new ConditionalSupplier<>(input, testValue -> Objects.equals(testValue, other.get()), output, elseOut);
+        return this.test(Operator.EQUALS, Operand.from(other));
     }
     
     public ConditionalSupplier<InType, OutType> GreaterThan(InType other) {
-        return new ConditionalSupplier<>(input, testValue -> ((Comparable<InType>) testValue).compareTo(other) > 0, output, elseOut);
+        return this.test(Operator.GREATER_THAN, Operand.of(other));
     }
     
     public ConditionalSupplier<InType, OutType> GreaterThan(final Supplier<InType> other) {
-        return new ConditionalSupplier<>(input, testValue -> ((Comparable<InType>) testValue).compareTo(other.get()) > 0, output, elseOut);
+        return this.test(Operator.GREATER_THAN, Operand.from(other));
     }
     
     public ConditionalSupplier<InType, OutType> GreaterThanOrEquals(final InType other) {
-        return new ConditionalSupplier<>(input, testValue -> ((Comparable<InType>) testValue).compareTo(other) >= 0, output, elseOut);
+        return this.test(Operator.GREATER_THAN_OR_EQUALS, Operand.of(other));
     }
     
     public ConditionalSupplier<InType, OutType> GreaterThanOrEquals(final Supplier<InType> other) {
-        return new ConditionalSupplier<>(input, testValue -> ((Comparable<InType>) testValue).compareTo(other.get()) >= 0, output, elseOut);
+        return this.test(Operator.GREATER_THAN_OR_EQUALS, Operand.from(other));
     }
     
     public ConditionalSupplier<InType, OutType> LessThan(final InType other) {
-        return new ConditionalSupplier<>(input, testValue -> ((Comparable<InType>) testValue).compareTo(other) < 0, output, elseOut);
+        return this.test(Operator.LESS_THAN, Operand.of(other));
     }
     
     public ConditionalSupplier<InType, OutType> LessThan(final Supplier<InType> other) {
-        return new ConditionalSupplier<>(input, testValue -> ((Comparable<InType>) testValue).compareTo(other.get()) < 0, output, elseOut);
+        return this.test(Operator.LESS_THAN, Operand.from(other));
     }
     
     public ConditionalSupplier<InType, OutType> LessThanOrEquals(final Supplier<InType> other) {
-        return new ConditionalSupplier<>(input, testValue -> ((Comparable<InType>) testValue).compareTo(other.get()) <= 0, output, elseOut);
+        return this.test(Operator.LESS_THAN_OR_EQUALS, Operand.from(other));
     }
     
     public ConditionalSupplier<InType, OutType> LessThanOrEquals(final InType other) {
-        return new ConditionalSupplier<>(input, testValue -> ((Comparable<InType>) testValue).compareTo(other) <= 0, output, elseOut);
+        return this.test(Operator.LESS_THAN_OR_EQUALS, Operand.of(other));
     }
     
     public ConditionalSupplier<InType, OutType> NotEquals(final Supplier<InType> other) {
-        return new ConditionalSupplier<>(input, testValue -> !Objects.equals(testValue, other.get()), output, elseOut);
+        return this.test(Operator.NOT_EQUALS, Operand.from(other));
     }
     
     public ConditionalSupplier<InType, OutType> NotEquals(final InType other) {
-        return new ConditionalSupplier<>(input, testValue -> !Objects.equals(testValue, other), output, elseOut);
+        return this.test(Operator.NOT_EQUALS, Operand.of(other));
     }
 
     public ConditionalSupplier<InType, OutType> ThenGet(final Supplier<OutType> output) {
-        return new ConditionalSupplier<>(input, test, output, elseOut);
+        return new ConditionalSupplier<>(this.input, this.operator, this.other, Operand.from(output), this.elseOut);
     }
     
     public ConditionalSupplier<InType, OutType> Then(final OutType output) {
-        return new ConditionalSupplier<>(input, test, () -> output, elseOut);
+        return new ConditionalSupplier<>(this.input, this.operator, this.other, Operand.of(output), this.elseOut);
     }
     
-    public ConditionalSupplier Else(final OutType elseOut) {
-        return new ConditionalSupplier(input, test, output, () -> elseOut);
+    public ConditionalSupplier<InType, OutType> Else(final OutType elseOut) {
+        return new ConditionalSupplier<>(this.input, this.operator, this.other, this.output, Operand.of(elseOut));
     }
 
     @Override
     public OutType get() {
-        if (this.test.test(this.input.get())) {
+        if (evaluate(this.operator, this.input.get(), this.other.get())) {
             return this.output.get();
         } else {
             return this.elseOut.get();
@@ -111,6 +167,99 @@ public final class ConditionalSupplier<InType, OutType> implements Supplier<OutT
     }
 
     public ConditionalSupplier<InType, OutType> ElseGet(final Supplier<OutType> elseStatement) {
-        return new ConditionalSupplier(input, test, output, elseStatement);
+        return new ConditionalSupplier<>(this.input, this.operator, this.other, this.output, Operand.from(elseStatement));
+    }
+
+    /**
+     * Compiles the finished chain into a single flat evaluator. Constant
+     * results are folded and comparisons between constants are evaluated
+     * once, here. The input is not evaluated by the compiled supplier if the
+     * result does not depend on it.
+     *
+     * @return a supplier that is equivalent to this ConditionalSupplier.
+     * @since 26.10.16
+     */
+    public Supplier<OutType> compile() {
+        if (this.operator == Operator.ALWAYS) {
+            return this.output.toSupplier();
+        } else if (this.input.isConstant && this.other.isConstant) {
+            return evaluate(this.operator, this.input.value, this.other.value)
+                    ? this.output.toSupplier()
+                    : this.elseOut.toSupplier();
+        } else {
+            return new Compiled<>(this);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> boolean evaluate(final Operator operator, final T testValue, final T other) {
+        switch (operator) {
+            case ALWAYS:
+                return true;
+            case EQUALS:
+                return Objects.equals(testValue, other);
+            case NOT_EQUALS:
+                return !Objects.equals(testValue, other);
+            case GREATER_THAN:
+                return ((Comparable<T>) testValue).compareTo(other) > 0;
+            case GREATER_THAN_OR_EQUALS:
+                return ((Comparable<T>) testValue).compareTo(other) >= 0;
+            case LESS_THAN:
+                return ((Comparable<T>) testValue).compareTo(other) < 0;
+            case LESS_THAN_OR_EQUALS:
+                return ((Comparable<T>) testValue).compareTo(other) <= 0;
+            default:
+                throw new AssertionError("Unknown operator: " + operator);
+        }
+    }
+
+    /**
+     * The flattened form of a ConditionalSupplier. All operands are copied
+     * into final fields so that get does not need to traverse the Operand
+     * wrappers.
+     */
+    private static final class Compiled<InType, OutType> implements Supplier<OutType> {
+
+        private final Operator operator;
+        private final boolean isInputConstant;
+        private final InType inputValue;
+        private final Supplier<InType> input;
+        private final boolean isOtherConstant;
+        private final InType otherValue;
+        private final Supplier<InType> other;
+        private final boolean isOutputConstant;
+        private final OutType outputValue;
+        private final Supplier<OutType> output;
+        private final boolean isElseConstant;
+        private final OutType elseValue;
+        private final Supplier<OutType> elseOut;
+
+        private Compiled(final ConditionalSupplier<InType, OutType> source) {
+            this.operator = source.operator;
+            this.isInputConstant = source.input.isConstant;
+            this.inputValue = source.input.value;
+            this.input = source.input.supplier;
+            this.isOtherConstant = source.other.isConstant;
+            this.otherValue = source.other.value;
+            this.other = source.other.supplier;
+            this.isOutputConstant = source.output.isConstant;
+            this.outputValue = source.output.value;
+            this.output = source.output.supplier;
+            this.isElseConstant = source.elseOut.isConstant;
+            this.elseValue = source.elseOut.value;
+            this.elseOut = source.elseOut.supplier;
+        }
+
+        @Override
+        public OutType get() {
+            final InType testValue = this.isInputConstant ? this.inputValue : this.input.get();
+            final InType otherValue = this.isOtherConstant ? this.otherValue : this.other.get();
+
+            if (evaluate(this.operator, testValue, otherValue)) {
+                return this.isOutputConstant ? this.outputValue : this.output.get();
+            } else {
+                return this.isElseConstant ? this.elseValue : this.elseOut.get();
+            }
+        }
     }
 }
@@ -0,0 +1,331 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A multi-branch form of ConditionalSupplier. A ConditionalTable evaluates its
+ * input once and selects the first rule that matches it, as an if/else ladder
+ * would. Equality rules are indexed with a hash map and range rules with a
+ * sorted array of bounds, so selecting a rule is O(1) or O(log n) instead of
+ * testing every rule in turn.
+ *
+ * Range rules use the natural ordering of the input; a null input never
+ * matches a range rule.
+ *
+ * @author zmichaels
+ * @param <InType> the type of the input.
+ * @param <OutType> the type of the output.
+ * @since 26.10.16
+ */
+public final class ConditionalTable<InType, OutType> implements Supplier<OutType> {
+
+    private static final int NO_RULE = Integer.MAX_VALUE;
+
+    private enum Operator {
+        EQUALS,
+        GREATER_THAN,
+        GREATER_THAN_OR_EQUALS,
+        LESS_THAN,
+        LESS_THAN_OR_EQUALS
+    }
+
+    private final Supplier<InType> input;
+    private final Map<InType, Integer> equalsIndex;
+    private final Object[] bounds;
+    private final int[] segmentRules;
+    private final Supplier<OutType>[] outputs;
+    private final Supplier<OutType> elseOut;
+
+    private ConditionalTable(final Builder<InType, OutType> builder, final Supplier<OutType> elseOut) {
+        // snapshot the builder; rules added to it later do not affect this table.
+        final Operator[] operators = builder.operators.toArray(new Operator[0]);
+        final List<InType> values = new ArrayList<>(builder.values);
+        final int ruleCount = operators.length;
+
+        this.input = builder.input;
+        this.elseOut = elseOut;
+        this.outputs = toArray(builder.outputs);
+        this.equalsIndex = new HashMap<>();
+
+        final List<Object> rangeBounds = new ArrayList<>();
+
+        for (int i = 0; i < ruleCount; i++) {
+            if (operators[i] == Operator.EQUALS) {
+                // the first matching rule wins, just like an if/else ladder.
+                this.equalsIndex.putIfAbsent(values.get(i), i);
+            } else {
+                rangeBounds.add(Objects.requireNonNull(values.get(i), "Range bounds cannot be null!"));
+            }
+        }
+
+        this.bounds = distinctSorted(rangeBounds);
+
+        final int[] ruleBounds = new int[ruleCount];
+
+        for (int i = 0; i < ruleCount; i++) {
+            if (operators[i] != Operator.EQUALS) {
+                ruleBounds[i] = Arrays.binarySearch(this.bounds, values.get(i));
+            }
+        }
+
+        this.segmentRules = new int[this.bounds.length * 2 + 1];
+
+        for (int segment = 0; segment < this.segmentRules.length; segment++) {
+            this.segmentRules[segment] = NO_RULE;
+
+            for (int i = 0; i < ruleCount; i++) {
+                final Operator operator = operators[i];
+
+                if (operator != Operator.EQUALS && matches(operator, segment, ruleBounds[i])) {
+                    this.segmentRules[segment] = i;
+                    break;
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Supplier<T>[] toArray(final List<Supplier<T>> suppliers) {
+        return suppliers.toArray(new Supplier[suppliers.size()]);
+    }
+
+    private static Object[] distinctSorted(final List<Object> values) {
+        final Object[] sorted = values.toArray();
+
+        Arrays.sort(sorted);
+
+        int count = 0;
+
+        for (Object value : sorted) {
+            if (count == 0 || compare(sorted[count - 1], value) != 0) {
+                sorted[count++] = value;
+            }
+        }
+
+        return Arrays.copyOf(sorted, count);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(final Object a, final Object b) {
+        return ((Comparable) a).compareTo(b);
+    }
+
+    /**
+     * Checks if a range rule matches every value in a segment. Segments
+     * alternate between the open intervals around the bounds (even) and the
+     * bounds themselves (odd), so a rule can be tested against a segment by
+     * comparing positions alone.
+     */
+    private static boolean matches(final Operator operator, final int segment, final int bound) {
+        if ((segment & 1) == 1) {
+            final int point = segment >> 1;
+
+            switch (operator) {
+                case GREATER_THAN:
+                    return point > bound;
+                case GREATER_THAN_OR_EQUALS:
+                    return point >= bound;
+                case LESS_THAN:
+                    return point < bound;
+                case LESS_THAN_OR_EQUALS:
+                    return point <= bound;
+                default:
+                    throw new AssertionError("Not a range operator: " + operator);
+            }
+        } else {
+            final int above = segment >> 1;
+
+            switch (operator) {
+                case GREATER_THAN:
+                case GREATER_THAN_OR_EQUALS:
+                    return above > bound;
+                case LESS_THAN:
+                case LESS_THAN_OR_EQUALS:
+                    return above <= bound;
+                default:
+                    throw new AssertionError("Not a range operator: " + operator);
+            }
+        }
+    }
+
+    private int segmentOf(final Object value) {
+        final int index = Arrays.binarySearch(this.bounds, value);
+
+        return index >= 0
+                ? index * 2 + 1
+                : (-index - 1) * 2;
+    }
+
+    /**
+     * Starts a new table that selects on the value returned by the supplier.
+     * The supplier is called once per call to get.
+     *
+     * @param <In> the type of the input.
+     * @param <Out> the type of the output.
+     * @param input the input supplier.
+     * @return the table builder.
+     * @since 26.10.16
+     */
+    public static <In, Out> Builder<In, Out> If(final Supplier<In> input) {
+        return new Builder<>(Objects.requireNonNull(input));
+    }
+
+    /**
+     * Starts a new table that selects on a fixed value.
+     *
+     * @param <In> the type of the input.
+     * @param <Out> the type of the output.
+     * @param value the input value.
+     * @return the table builder.
+     * @since 26.10.16
+     */
+    public static <In, Out> Builder<In, Out> If(final In value) {
+        return new Builder<>(Singletons.of(value));
+    }
+
+    @Override
+    public OutType get() {
+        final InType value = this.input.get();
+        int rule = NO_RULE;
+
+        final Integer equalsRule = this.equalsIndex.get(value);
+
+        if (equalsRule != null) {
+            rule = equalsRule;
+        }
+
+        if (this.bounds.length > 0 && value != null) {
+            rule = Math.min(rule, this.segmentRules[this.segmentOf(value)]);
+        }
+
+        return rule == NO_RULE
+                ? this.elseOut.get()
+                : this.outputs[rule].get();
+    }
+
+    /**
+     * Builder for a ConditionalTable. Rules are matched in the order they are
+     * added. Each table takes a snapshot of the rules when it is built, so the
+     * builder may be extended and built again without affecting earlier
+     * tables.
+     *
+     * @param <InType> the type of the input.
+     * @param <OutType> the type of the output.
+     * @since 26.10.16
+     */
+    public static final class Builder<InType, OutType> {
+
+        private final Supplier<InType> input;
+        private final List<Operator> operators = new ArrayList<>();
+        private final List<InType> values = new ArrayList<>();
+        private final List<Supplier<OutType>> outputs = new ArrayList<>();
+
+        private Builder(final Supplier<InType> input) {
+            this.input = input;
+        }
+
+        private Rule<InType, OutType> rule(final Operator operator, final InType value) {
+            return new Rule<>(this, operator, value);
+        }
+
+        public Rule<InType, OutType> Equals(final InType value) {
+            return this.rule(Operator.EQUALS, value);
+        }
+
+        public Rule<InType, OutType> GreaterThan(final InType value) {
+            return this.rule(Operator.GREATER_THAN, value);
+        }
+
+        public Rule<InType, OutType> GreaterThanOrEquals(final InType value) {
+            return this.rule(Operator.GREATER_THAN_OR_EQUALS, value);
+        }
+
+        public Rule<InType, OutType> LessThan(final InType value) {
+            return this.rule(Operator.LESS_THAN, value);
+        }
+
+        public Rule<InType, OutType> LessThanOrEquals(final InType value) {
+            return this.rule(Operator.LESS_THAN_OR_EQUALS, value);
+        }
+
+        public ConditionalTable<InType, OutType> Else(final OutType elseOut) {
+            return new ConditionalTable<>(this, Singletons.of(elseOut));
+        }
+
+        public ConditionalTable<InType, OutType> ElseGet(final Supplier<OutType> elseStatement) {
+            return new ConditionalTable<>(this, Objects.requireNonNull(elseStatement));
+        }
+
+        /**
+         * Builds the table with a null result if no rule matches.
+         *
+         * @return the ConditionalTable.
+         * @since 26.10.16
+         */
+        public ConditionalTable<InType, OutType> build() {
+            return this.Else(null);
+        }
+    }
+
+    /**
+     * A rule that is waiting for its result.
+     *
+     * @param <InType> the type of the input.
+     * @param <OutType> the type of the output.
+     * @since 26.10.16
+     */
+    public static final class Rule<InType, OutType> {
+
+        private final Builder<InType, OutType> builder;
+        private final Operator operator;
+        private final InType value;
+
+        private Rule(final Builder<InType, OutType> builder, final Operator operator, final InType value) {
+            this.builder = builder;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        public Builder<InType, OutType> Then(final OutType output) {
+            return this.ThenGet(Singletons.of(output));
+        }
+
+        public Builder<InType, OutType> ThenGet(final Supplier<OutType> output) {
+            this.builder.operators.add(this.operator);
+            this.builder.values.add(this.value);
+            this.builder.outputs.add(Objects.requireNonNull(output));
+            return this.builder;
+        }
+    }
+}
@@ -25,6 +25,11 @@
  */
 package com.runouw.util;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
@@ -50,4 +55,71 @@ public interface Deferrable<T> extends Supplier<T> {
 
     @Override
     T get();
+
+    /**
+     * Retrieves the Deferrables that must be initialized before this one. This
+     * is used by LazyGroup to initialize independent Deferrables in parallel.
+     *
+     * @return the dependencies. The default implementation has none.
+     * @since 26.10.16
+     */
+    default Collection<Deferrable<?>> dependencies() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Constructs a Lazy that applies a function to the value of this
+     * Deferrable. The result depends on this Deferrable.
+     *
+     * @param <R> the type of the result.
+     * @param mapper the function to apply.
+     * @return the mapped Lazy.
+     * @since 26.10.16
+     */
+    default <R> Lazy<R> map(final Function<? super T, ? extends R> mapper) {
+        Objects.requireNonNull(mapper);
+
+        return Lazy.dependent(() -> mapper.apply(this.get()), this);
+    }
+
+    /**
+     * Constructs a Lazy that applies a function returning a Deferrable to the
+     * value of this Deferrable. The result depends on this Deferrable; the
+     * returned Deferrable is only known once the function has run, so it is
+     * not recorded as a dependency.
+     *
+     * @param <R> the type of the result.
+     * @param mapper the function to apply.
+     * @return the mapped Lazy.
+     * @since 26.10.16
+     */
+    default <R> Lazy<R> flatMap(final Function<? super T, ? extends Supplier<? extends R>> mapper) {
+        Objects.requireNonNull(mapper);
+
+        return Lazy.dependent(() -> mapper.apply(this.get()).get(), this);
+    }
+
+    /**
+     * Constructs a Lazy that combines the values of two Deferrables. The
+     * result depends on both Deferrables.
+     *
+     * @param <A> the type of the first value.
+     * @param <B> the type of the second value.
+     * @param <R> the type of the result.
+     * @param first the first Deferrable.
+     * @param second the second Deferrable.
+     * @param combiner the function that combines both values.
+     * @return the combined Lazy.
+     * @since 26.10.16
+     */
+    static <A, B, R> Lazy<R> zip(
+            final Deferrable<A> first, final Deferrable<B> second,
+            final BiFunction<? super A, ? super B, ? extends R> combiner) {
+
+        Objects.requireNonNull(first);
+        Objects.requireNonNull(second);
+        Objects.requireNonNull(combiner);
+
+        return Lazy.dependent(() -> combiner.apply(first.get(), second.get()), first, second);
+    }
 }
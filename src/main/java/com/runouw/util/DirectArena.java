@@ -0,0 +1,364 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A buddy allocator for direct ByteBuffers. Memory is reserved from the
+ * operating system in large chunks and handed out in power-of-two sized
+ * blocks. Released blocks are merged with their free buddies and reused by
+ * later allocations instead of waiting for the garbage collector to free the
+ * direct memory. A chunk whose blocks have all been released is freed, except
+ * for the last one, which is kept so that an arena that is repeatedly emptied
+ * and refilled does not reserve a new chunk every time.
+ * <p>
+ * Allocations larger than the chunk size are given their own direct buffer,
+ * which is freed as soon as it is released.
+ * <p>
+ * Freed memory is returned to the operating system immediately. A block, and
+ * every view of it, must not be used after it has been released: the block
+ * may already hold another allocation, and reading memory that has been freed
+ * can crash the JVM. Releasing a block twice, or releasing a buffer that was
+ * not returned by allocate, throws an exception.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+public final class DirectArena {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectArena.class);
+    private static final int MIN_BLOCK_SHIFT = 6;
+
+    private final int chunkShift;
+    private final Set<Block>[] freeBlocks;
+    private final List<Chunk> chunks = new ArrayList<>();
+    private final Map<ByteBuffer, Block> allocated = new IdentityHashMap<>();
+    private long reservedBytes = 0L;
+    private long usedBytes = 0L;
+
+    /**
+     * Constructs a new DirectArena.
+     *
+     * @param chunkSize the number of bytes to reserve at a time. This is
+     * rounded up to a power of two.
+     * @since 26.10.16
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public DirectArena(final int chunkSize) {
+        if (chunkSize <= 0 || chunkSize > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+
+        this.chunkShift = Math.max(MIN_BLOCK_SHIFT, shiftFor(chunkSize));
+        this.freeBlocks = new Set[this.chunkShift + 1];
+
+        for (int i = 0; i < this.freeBlocks.length; i++) {
+            this.freeBlocks[i] = new HashSet<>();
+        }
+    }
+
+    private static int shiftFor(final int size) {
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /**
+     * Allocates a block of direct memory. The returned buffer has a position
+     * of 0 and a limit of the requested size; its capacity may be larger.
+     *
+     * @param size the number of bytes required.
+     * @return the block.
+     * @since 26.10.16
+     */
+    public synchronized ByteBuffer allocate(final int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size cannot be negative!");
+        }
+
+        final int shift = Math.max(MIN_BLOCK_SHIFT, shiftFor(size));
+        final Block block;
+        final ByteBuffer buffer;
+
+        if (shift > this.chunkShift) {
+            buffer = ByteBuffer.allocateDirect(size);
+            block = new Block(null, 0, shift);
+            this.reservedBytes += size;
+        } else {
+            block = this.take(shift);
+            buffer = block.slice();
+        }
+
+        this.allocated.put(buffer, block);
+        this.usedBytes += buffer.capacity();
+        ((Buffer) buffer).limit(size);
+        return buffer;
+    }
+
+    private Block take(final int shift) {
+        int available = shift;
+
+        while (available <= this.chunkShift && this.freeBlocks[available].isEmpty()) {
+            available++;
+        }
+
+        final Block block;
+
+        if (available > this.chunkShift) {
+            final Chunk chunk = new Chunk(ByteBuffer.allocateDirect(1 << this.chunkShift));
+
+            this.chunks.add(chunk);
+            this.reservedBytes += 1L << this.chunkShift;
+            block = new Block(chunk, 0, this.chunkShift);
+            available = this.chunkShift;
+        } else {
+            final Iterator<Block> it = this.freeBlocks[available].iterator();
+
+            block = it.next();
+            it.remove();
+        }
+
+        // split the block in half until it is the requested size; the upper
+        // halves become free buddies.
+        while (available > shift) {
+            available--;
+            this.freeBlocks[available].add(new Block(block.chunk, block.offset + (1 << available), available));
+        }
+
+        block.chunk.used++;
+        return new Block(block.chunk, block.offset, shift);
+    }
+
+    /**
+     * Returns a block to the arena. The block and every view of it must not
+     * be used afterwards, since its memory may be handed out again or freed
+     * immediately; reading freed memory can crash the JVM.
+     *
+     * @param block a block returned by allocate.
+     * @throws IllegalStateException if the buffer was not allocated by
+     * this arena or has already been released.
+     * @since 26.10.16
+     */
+    public synchronized void release(final ByteBuffer block) {
+        final Block released = this.allocated.remove(block);
+
+        if (released == null) {
+            throw new IllegalStateException("Buffer was not allocated by this arena or has already been released!");
+        }
+
+        this.usedBytes -= block.capacity();
+
+        if (released.chunk == null) {
+            this.reservedBytes -= block.capacity();
+            free(block);
+            return;
+        }
+
+        Block merged = released;
+
+        // merge with the buddy for as long as it is free.
+        while (merged.shift < this.chunkShift) {
+            final Block buddy = new Block(merged.chunk, merged.offset ^ (1 << merged.shift), merged.shift);
+
+            if (!this.freeBlocks[merged.shift].remove(buddy)) {
+                break;
+            }
+
+            merged = new Block(merged.chunk, Math.min(merged.offset, buddy.offset), merged.shift + 1);
+        }
+
+        final Chunk chunk = merged.chunk;
+
+        if (--chunk.used == 0 && this.chunks.size() > 1) {
+            this.chunks.remove(chunk);
+            this.reservedBytes -= chunk.memory.capacity();
+            free(chunk.memory);
+        } else {
+            this.freeBlocks[merged.shift].add(merged);
+        }
+    }
+
+    /**
+     * Retrieves the number of bytes of direct memory reserved by the arena.
+     *
+     * @return the reserved bytes.
+     * @since 26.10.16
+     */
+    public synchronized long getReservedBytes() {
+        return this.reservedBytes;
+    }
+
+    /**
+     * Retrieves the number of bytes currently allocated from the arena,
+     * including rounding to the block size.
+     *
+     * @return the used bytes.
+     * @since 26.10.16
+     */
+    public synchronized long getUsedBytes() {
+        return this.usedBytes;
+    }
+
+    private static void free(final ByteBuffer buffer) {
+        if (!DirectFree.free(buffer)) {
+            LOGGER.trace("Direct memory will be freed by the garbage collector.");
+        }
+    }
+
+    /**
+     * A chunk of direct memory and the number of blocks allocated from it.
+     */
+    private static final class Chunk {
+
+        private final ByteBuffer memory;
+        private int used = 0;
+
+        private Chunk(final ByteBuffer memory) {
+            this.memory = memory;
+        }
+    }
+
+    /**
+     * A block of a chunk. Blocks are compared by position so that a buddy can
+     * be found in the free set.
+     */
+    private static final class Block {
+
+        private final Chunk chunk;
+        private final int offset;
+        private final int shift;
+
+        private Block(final Chunk chunk, final int offset, final int shift) {
+            this.chunk = chunk;
+            this.offset = offset;
+            this.shift = shift;
+        }
+
+        private ByteBuffer slice() {
+            final ByteBuffer view = this.chunk.memory.duplicate();
+
+            ((Buffer) view).limit(this.offset + (1 << this.shift));
+            ((Buffer) view).position(this.offset);
+            return view.slice();
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Block)) {
+                return false;
+            }
+
+            final Block block = (Block) other;
+
+            return this.chunk == block.chunk && this.offset == block.offset && this.shift == block.shift;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this.chunk) * 31 + this.offset;
+        }
+    }
+
+    /**
+     * Frees direct memory without waiting for the garbage collector. Uses
+     * Unsafe.invokeCleaner on Java 9 and later and the buffer's Cleaner on
+     * Java 8. If neither is available, the memory is left to the garbage
+     * collector.
+     */
+    private static final class DirectFree {
+
+        private static final Object UNSAFE;
+        private static final Method INVOKE_CLEANER;
+        private static final Method CLEANER;
+        private static final Method CLEAN;
+
+        static {
+            Object unsafe = null;
+            Method invokeCleaner = null;
+            Method cleaner = null;
+            Method clean = null;
+
+            try {
+                final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+
+                theUnsafe.setAccessible(true);
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                unsafe = theUnsafe.get(null);
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                try {
+                    cleaner = ByteBuffer.allocateDirect(1).getClass().getMethod("cleaner");
+                    cleaner.setAccessible(true);
+                    clean = cleaner.getReturnType().getMethod("clean");
+                    clean.setAccessible(true);
+                } catch (ReflectiveOperationException | RuntimeException ex2) {
+                    LOGGER.debug("Unable to free direct memory explicitly.", ex2);
+                    cleaner = null;
+                    clean = null;
+                }
+            }
+
+            UNSAFE = unsafe;
+            INVOKE_CLEANER = invokeCleaner;
+            CLEANER = cleaner;
+            CLEAN = clean;
+        }
+
+        private DirectFree() {
+        }
+
+        private static boolean free(final ByteBuffer buffer) {
+            try {
+                if (INVOKE_CLEANER != null) {
+                    INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                    return true;
+                } else if (CLEAN != null) {
+                    final Object cleaner = CLEANER.invoke(buffer);
+
+                    if (cleaner != null) {
+                        CLEAN.invoke(cleaner);
+                        return true;
+                    }
+                }
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                LOGGER.debug("Unable to free direct memory explicitly.", ex);
+            }
+
+            return false;
+        }
+    }
+}
@@ -0,0 +1,422 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory history of wrapper lifecycle events. Events are written into
+ * a preallocated ring buffer without locks or allocation, so the most recent
+ * events can be dumped after a latency incident. Once the buffer is full,
+ * the oldest events are overwritten.
+ * <p>
+ * Recording is disabled unless the system property
+ * {@code com.runouw.util.events} is true. The flag is a static final
+ * constant, so the JIT removes disabled recording entirely. The buffer
+ * capacity is set with {@code com.runouw.util.events.capacity} (default
+ * 4096). If {@code com.runouw.util.events.jfr} is also true and the JVM has
+ * Flight Recorder, each event is emitted as a
+ * {@code com.runouw.util.WrapperEvent} as well, while a recording has that
+ * event enabled.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+public final class EventLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventLog.class);
+
+    static final boolean ENABLED = Boolean.getBoolean("com.runouw.util.events");
+
+    private static final int CAPACITY = ENABLED
+            ? Integer.highestOneBit(Math.max(2, Integer.getInteger("com.runouw.util.events.capacity", 4096)) * 2 - 1)
+            : 0;
+    private static final int MASK = CAPACITY - 1;
+    private static final long BUSY = -1L;
+
+    // slot i holds event n where n & MASK == i. The sequence of a slot is
+    // BUSY while it is written, so readers can detect torn events.
+    private static final AtomicLong CURSOR = new AtomicLong();
+    private static final AtomicLongArray SEQUENCES = new AtomicLongArray(CAPACITY);
+    private static final AtomicLongArray TIMESTAMPS = new AtomicLongArray(CAPACITY);
+    private static final AtomicLongArray DURATIONS = new AtomicLongArray(CAPACITY);
+    private static final AtomicLongArray DESCRIPTORS = new AtomicLongArray(CAPACITY);
+    private static final AtomicReferenceArray<Class<?>> SOURCES = new AtomicReferenceArray<>(CAPACITY);
+
+    // FlightRecorder is only loaded when it is requested.
+    private static final boolean IS_JFR = ENABLED
+            && Boolean.getBoolean("com.runouw.util.events.jfr")
+            && FlightRecorder.AVAILABLE;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            SEQUENCES.lazySet(i, BUSY);
+        }
+    }
+
+    private EventLog() {
+    }
+
+    /**
+     * The kinds of lifecycle events.
+     *
+     * @since 26.10.16
+     */
+    public enum Type {
+        /**
+         * A Lazy object was constructed.
+         */
+        INITIALIZE,
+        /**
+         * An Unloadable object was restored.
+         */
+        RESTORE,
+        /**
+         * An Unloadable object was salvaged from a retained reference.
+         */
+        SALVAGE,
+        /**
+         * An Unloadable object was unloaded.
+         */
+        UNLOAD,
+        /**
+         * A retained reference was reclaimed by the garbage collector.
+         */
+        RECLAIM,
+        /**
+         * The value of a Replaceable object changed.
+         */
+        REPLACE
+    }
+
+    /**
+     * A recorded event.
+     *
+     * @since 26.10.16
+     */
+    public static final class Event {
+
+        private final long sequence;
+        private final long timestamp;
+        private final long duration;
+        private final Type type;
+        private final Class<?> source;
+        private final int sourceId;
+
+        private Event(
+                final long sequence, final long timestamp, final long duration,
+                final Type type, final Class<?> source, final int sourceId) {
+
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.duration = duration;
+            this.type = type;
+            this.source = source;
+            this.sourceId = sourceId;
+        }
+
+        /**
+         * Retrieves the position of the event in the history.
+         *
+         * @return the sequence number.
+         * @since 26.10.16
+         */
+        public long getSequence() {
+            return this.sequence;
+        }
+
+        /**
+         * Retrieves when the event ended, as reported by System.nanoTime.
+         *
+         * @return the timestamp in nanoseconds.
+         * @since 26.10.16
+         */
+        public long getTimestamp() {
+            return this.timestamp;
+        }
+
+        /**
+         * Retrieves how long the event took. Events without a duration report
+         * 0.
+         *
+         * @return the duration in nanoseconds.
+         * @since 26.10.16
+         */
+        public long getDuration() {
+            return this.duration;
+        }
+
+        /**
+         * Retrieves the kind of event.
+         *
+         * @return the type.
+         * @since 26.10.16
+         */
+        public Type getType() {
+            return this.type;
+        }
+
+        /**
+         * Retrieves the class of the wrapper that recorded the event.
+         *
+         * @return the source class.
+         * @since 26.10.16
+         */
+        public Class<?> getSource() {
+            return this.source;
+        }
+
+        /**
+         * Retrieves the identity hash code of the wrapper that recorded the
+         * event. This distinguishes wrappers of the same class.
+         *
+         * @return the source id.
+         * @since 26.10.16
+         */
+        public int getSourceId() {
+            return this.sourceId;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("#%d %d %s %s@%08x %dns",
+                    this.sequence, this.timestamp, this.type,
+                    this.source.getSimpleName(), this.sourceId, this.duration);
+        }
+    }
+
+    /**
+     * Checks if events are recorded.
+     *
+     * @return true if the com.runouw.util.events property was set.
+     * @since 26.10.16
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Records an event. Callers check ENABLED first.
+     *
+     * @param type the kind of event.
+     * @param source the wrapper that recorded the event.
+     * @param duration how long the event took in nanoseconds.
+     */
+    static void record(final Type type, final Object source, final long duration) {
+        final long timestamp = System.nanoTime();
+        final long sequence = CURSOR.getAndIncrement();
+        final int slot = (int) sequence & MASK;
+        final int sourceId = System.identityHashCode(source);
+
+        // lazySet is a release store, so each write is ordered after the
+        // previous ones and the final sequence publishes the whole event.
+        SEQUENCES.lazySet(slot, BUSY);
+        TIMESTAMPS.lazySet(slot, timestamp);
+        DURATIONS.lazySet(slot, duration);
+        DESCRIPTORS.lazySet(slot, ((long) type.ordinal() << 32) | (sourceId & 0xFFFFFFFFL));
+        SOURCES.lazySet(slot, source.getClass());
+        SEQUENCES.lazySet(slot, sequence);
+
+        if (IS_JFR) {
+            FlightRecorder.emit(type, source.getClass(), sourceId, duration);
+        }
+    }
+
+    /**
+     * Retrieves the events that are still in the history, oldest first.
+     * Events that are overwritten while they are read are skipped.
+     *
+     * @return the events.
+     * @since 26.10.16
+     */
+    public static List<Event> snapshot() {
+        if (!ENABLED) {
+            return Collections.emptyList();
+        }
+
+        final Type[] types = Type.values();
+        final long end = CURSOR.get();
+        final List<Event> events = new ArrayList<>((int) Math.min(end, CAPACITY));
+
+        for (long sequence = Math.max(0L, end - CAPACITY); sequence < end; sequence++) {
+            final int slot = (int) sequence & MASK;
+
+            if (SEQUENCES.get(slot) != sequence) {
+                continue;
+            }
+
+            final long timestamp = TIMESTAMPS.get(slot);
+            final long duration = DURATIONS.get(slot);
+            final long descriptor = DESCRIPTORS.get(slot);
+            final Class<?> source = SOURCES.get(slot);
+
+            if (SEQUENCES.get(slot) == sequence) {
+                events.add(new Event(
+                        sequence, timestamp, duration,
+                        types[(int) (descriptor >>> 32)], source, (int) descriptor));
+            }
+        }
+
+        return events;
+    }
+
+    /**
+     * Writes the events that are still in the history to a stream, oldest
+     * first.
+     *
+     * @param out the stream to write to.
+     * @since 26.10.16
+     */
+    public static void dump(final PrintStream out) {
+        if (!ENABLED) {
+            out.println("Event recording is disabled; set -Dcom.runouw.util.events=true to enable it.");
+            return;
+        }
+
+        for (Event event : snapshot()) {
+            out.println(event);
+        }
+    }
+
+    /**
+     * Emits events to Flight Recorder through jdk.jfr.EventFactory. The API
+     * is looked up reflectively so that this library still runs on JVMs
+     * without Flight Recorder; the method handles are bound once, so emitting
+     * costs nothing beyond the event itself. Nothing is allocated unless a
+     * recording has the event enabled.
+     */
+    private static final class FlightRecorder {
+
+        // ()boolean, bound to the event type.
+        private static final MethodHandle IS_ENABLED;
+        // ()Object, bound to the event factory.
+        private static final MethodHandle NEW_EVENT;
+        // (Object)boolean
+        private static final MethodHandle SHOULD_COMMIT;
+        // (Object, int, Object)void
+        private static final MethodHandle SET;
+        // (Object)void
+        private static final MethodHandle COMMIT;
+        private static final boolean AVAILABLE;
+
+        static {
+            MethodHandle isEnabled = null;
+            MethodHandle newEvent = null;
+            MethodHandle shouldCommit = null;
+            MethodHandle set = null;
+            MethodHandle commit = null;
+
+            try {
+                final Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+                final Class<?> eventClass = Class.forName("jdk.jfr.Event");
+                final Class<?> eventTypeClass = Class.forName("jdk.jfr.EventType");
+                final Class<?> annotationClass = Class.forName("jdk.jfr.AnnotationElement");
+                final Class<?> valueClass = Class.forName("jdk.jfr.ValueDescriptor");
+                final Constructor<?> annotation = annotationClass.getConstructor(Class.class, Object.class);
+                final Constructor<?> value = valueClass.getConstructor(Class.class, String.class);
+                final List<Object> annotations = Arrays.asList(
+                        annotation.newInstance(Class.forName("jdk.jfr.Name"), "com.runouw.util.WrapperEvent"),
+                        annotation.newInstance(Class.forName("jdk.jfr.Label"), "Wrapper Event"),
+                        annotation.newInstance(Class.forName("jdk.jfr.Category"), new String[]{"Runouw", "Util"}));
+                final List<Object> fields = Arrays.asList(
+                        value.newInstance(String.class, "type"),
+                        value.newInstance(String.class, "source"),
+                        value.newInstance(int.class, "sourceId"),
+                        value.newInstance(long.class, "durationNanos"));
+                final Object factory = factoryClass.getMethod("create", List.class, List.class).invoke(null, annotations, fields);
+                final Object eventType = factoryClass.getMethod("getEventType").invoke(factory);
+                final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+                isEnabled = lookup.findVirtual(eventTypeClass, "isEnabled", MethodType.methodType(boolean.class))
+                        .bindTo(eventType);
+                newEvent = lookup.findVirtual(factoryClass, "newEvent", MethodType.methodType(eventClass))
+                        .bindTo(factory)
+                        .asType(MethodType.methodType(Object.class));
+                shouldCommit = lookup.findVirtual(eventClass, "shouldCommit", MethodType.methodType(boolean.class))
+                        .asType(MethodType.methodType(boolean.class, Object.class));
+                set = lookup.findVirtual(eventClass, "set", MethodType.methodType(void.class, int.class, Object.class))
+                        .asType(MethodType.methodType(void.class, Object.class, int.class, Object.class));
+                commit = lookup.findVirtual(eventClass, "commit", MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(void.class, Object.class));
+            } catch (ReflectiveOperationException | LinkageError ex) {
+                LOGGER.warn("Flight Recorder is not available; events will only be kept in memory.", ex);
+                isEnabled = null;
+                newEvent = null;
+                shouldCommit = null;
+                set = null;
+                commit = null;
+            }
+
+            IS_ENABLED = isEnabled;
+            NEW_EVENT = newEvent;
+            SHOULD_COMMIT = shouldCommit;
+            SET = set;
+            COMMIT = commit;
+            AVAILABLE = commit != null;
+        }
+
+        private FlightRecorder() {
+        }
+
+        private static void emit(final Type type, final Class<?> source, final int sourceId, final long duration) {
+            try {
+                if (!(boolean) IS_ENABLED.invokeExact()) {
+                    return;
+                }
+
+                final Object event = (Object) NEW_EVENT.invokeExact();
+
+                if (!(boolean) SHOULD_COMMIT.invokeExact(event)) {
+                    return;
+                }
+
+                // dynamic events only take boxed values.
+                SET.invokeExact(event, 0, (Object) type.name());
+                SET.invokeExact(event, 1, (Object) source.getName());
+                SET.invokeExact(event, 2, (Object) Integer.valueOf(sourceId));
+                SET.invokeExact(event, 3, (Object) Long.valueOf(duration));
+                COMMIT.invokeExact(event);
+            } catch (Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                LOGGER.warn("Unable to emit Flight Recorder event!", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,383 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ExpiringLazy is a thread-safe lazy initialization wrapper whose value is
+ * only valid for a limited time. Once a value is older than the refresh
+ * point, get starts recomputing it on an Executor and keeps returning the
+ * old value until the new one is ready. Callers only block on the first load,
+ * or if the value has been stale for longer than the maximum stale time.
+ * <p>
+ * Each refresh starts at a random point in the first half of the
+ * refresh-ahead window, so values that were loaded together do not all
+ * refresh at the same moment.
+ *
+ * @author zmichaels
+ * @param <T> the type of the object.
+ * @since 26.10.16
+ */
+public class ExpiringLazy<T> implements Deferrable<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExpiringLazy.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<ExpiringLazy> REFRESHING
+            = AtomicIntegerFieldUpdater.newUpdater(ExpiringLazy.class, "refreshing");
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ExpiringLazy, FailureCache> FAILURES
+            = AtomicReferenceFieldUpdater.newUpdater(ExpiringLazy.class, FailureCache.class, "failures");
+
+    /**
+     * A loaded value. The refresh and stale points are stored relative to
+     * the load time and compared against the elapsed time, so they cannot
+     * overflow no matter how large the time to live is.
+     */
+    private static final class Entry<T> {
+
+        private final T value;
+        private final long loadedAt;
+        private final long refreshAfter;
+        private final long staleAfter;
+
+        private Entry(final T value, final long loadedAt, final long refreshAfter, final long staleAfter) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+            this.refreshAfter = refreshAfter;
+            this.staleAfter = staleAfter;
+        }
+
+        private boolean isFresh(final long now) {
+            return now - this.loadedAt < this.refreshAfter;
+        }
+
+        private boolean isExpired(final long now) {
+            return now - this.loadedAt >= this.staleAfter;
+        }
+    }
+
+    private final Object lock = new Object();
+    private final Supplier<T> constructor;
+    private final Executor executor;
+    private final long ttlNanos;
+    private volatile long refreshAheadNanos = 0L;
+    private volatile long maxStaleNanos;
+    private volatile Entry<T> entry = null;
+    private volatile int refreshing = 0;
+    private volatile FailureCache<T> failures = null;
+    private volatile Consumer<T> onRefresh = null;
+
+    /**
+     * Constructs a new ExpiringLazy. By default, refreshing starts when the
+     * value expires and a stale value is served for at most one more time to
+     * live.
+     *
+     * @param constructor the constructor for the object.
+     * @param ttl how long a value is fresh.
+     * @param unit the unit of ttl.
+     * @param executor the executor to refresh on.
+     * @since 26.10.16
+     */
+    public ExpiringLazy(final Supplier<T> constructor, final long ttl, final TimeUnit unit, final Executor executor) {
+        if (ttl <= 0L) {
+            throw new IllegalArgumentException("Time to live must be positive!");
+        }
+
+        this.constructor = Objects.requireNonNull(constructor);
+        this.executor = Objects.requireNonNull(executor);
+        this.ttlNanos = unit.toNanos(ttl);
+        this.maxStaleNanos = this.ttlNanos;
+    }
+
+    /**
+     * Sets how long before expiry a refresh may start. Refreshes start at a
+     * random point in the first half of this window. Applies to values loaded
+     * afterwards.
+     *
+     * @param refreshAhead the refresh-ahead window; at most the time to live.
+     * @param unit the unit of refreshAhead.
+     * @since 26.10.16
+     */
+    public void setRefreshAhead(final long refreshAhead, final TimeUnit unit) {
+        final long nanos = unit.toNanos(refreshAhead);
+
+        if (nanos < 0L || nanos > this.ttlNanos) {
+            throw new IllegalArgumentException("Refresh-ahead window must be between 0 and the time to live!");
+        }
+
+        this.refreshAheadNanos = nanos;
+    }
+
+    /**
+     * Sets how long after expiry a stale value may still be returned while it
+     * is being refreshed. After this, get blocks until a new value is loaded.
+     * Applies to values loaded afterwards.
+     *
+     * @param maxStale the maximum stale time.
+     * @param unit the unit of maxStale.
+     * @since 26.10.16
+     */
+    public void setMaxStale(final long maxStale, final TimeUnit unit) {
+        if (maxStale < 0L) {
+            throw new IllegalArgumentException("Maximum stale time cannot be negative!");
+        }
+
+        this.maxStaleNanos = unit.toNanos(maxStale);
+    }
+
+    /**
+     * Sets a callback for when a new value is loaded. The callback is
+     * executed on the thread that loaded the value.
+     *
+     * @param callback the method to call when a value is loaded.
+     * @since 26.10.16
+     */
+    public void setOnRefresh(final Consumer<T> callback) {
+        this.onRefresh = callback;
+    }
+
+    /**
+     * Sets how long to wait before calling the constructor again after it
+     * throws. Until then, a stale value is still served and is not refreshed;
+     * once there is no usable value, get throws an IllegalStateException
+     * caused by that exception, or returns the fallback value if one is set.
+     * Null retries on every call, which is the default.
+     *
+     * @param policy the backoff policy.
+     * @since 26.10.16
+     */
+    public void setBackoff(final BackoffPolicy policy) {
+        this.failures().setPolicy(policy);
+    }
+
+    /**
+     * Sets a supplier for the value returned by get while the constructor is
+     * failing and there is no usable value. Fallback values are not stored.
+     *
+     * @param fallback the fallback supplier. Null throws instead.
+     * @since 26.10.16
+     */
+    public void setFallback(final Supplier<T> fallback) {
+        this.failures().setFallback(fallback);
+    }
+
+    /**
+     * Sets a callback for when the constructor throws. The callback is
+     * executed on the thread that called the constructor.
+     *
+     * @param listener the callback.
+     * @since 26.10.16
+     */
+    public void setOnFailure(final FailureListener listener) {
+        this.failures().setListener(listener);
+    }
+
+    /**
+     * Retrieves the number of times the constructor failed since it last
+     * succeeded.
+     *
+     * @return the number of consecutive failures.
+     * @since 26.10.16
+     */
+    public int getConsecutiveFailures() {
+        final FailureCache<T> failures = this.failures;
+
+        return failures == null ? 0 : failures.getConsecutiveFailures();
+    }
+
+    /**
+     * Checks if loads are currently rejected because the constructor failed.
+     *
+     * @return true if the backoff window has not elapsed.
+     * @since 26.10.16
+     */
+    public boolean isBackingOff() {
+        final FailureCache<T> failures = this.failures;
+
+        return failures != null && failures.isBackingOff();
+    }
+
+    private FailureCache<T> failures() {
+        final FailureCache<T> failures = this.failures;
+
+        if (failures != null) {
+            return failures;
+        }
+
+        FAILURES.compareAndSet(this, null, new FailureCache<>());
+        return this.failures;
+    }
+
+    @Override
+    public T get() {
+        final Entry<T> current = this.entry;
+
+        if (current == null) {
+            return this.load(null);
+        }
+
+        final long now = System.nanoTime();
+
+        if (current.isFresh(now)) {
+            return current.value;
+        } else if (current.isExpired(now)) {
+            return this.load(current);
+        } else {
+            this.refreshAsync(current);
+            return current.value;
+        }
+    }
+
+    /**
+     * Recomputes the value on the calling thread.
+     *
+     * @return the new value.
+     * @since 26.10.16
+     */
+    @Override
+    public T restore() {
+        synchronized (this.lock) {
+            return this.construct();
+        }
+    }
+
+    /**
+     * Checks if a value has been loaded and is not yet due for a refresh.
+     *
+     * @return true if the value is fresh.
+     * @since 26.10.16
+     */
+    public boolean isFresh() {
+        final Entry<T> current = this.entry;
+
+        return current != null && current.isFresh(System.nanoTime());
+    }
+
+    /**
+     * Discards the current value. The next call to get will block to load a
+     * new one.
+     *
+     * @since 26.10.16
+     */
+    public void invalidate() {
+        this.entry = null;
+    }
+
+    private T load(final Entry<T> expected) {
+        synchronized (this.lock) {
+            final Entry<T> current = this.entry;
+
+            if (current != null && current != expected) {
+                // another thread loaded a value while this one waited.
+                return current.value;
+            }
+
+            return this.construct();
+        }
+    }
+
+    private void refreshAsync(final Entry<T> expected) {
+        final FailureCache<T> failures = this.failures;
+
+        // a failed refresh is not rescheduled until its backoff window
+        // elapses; the stale value is served meanwhile.
+        if ((failures != null && failures.isBackingOff())
+                || !REFRESHING.compareAndSet(this, 0, 1)) {
+            return;
+        }
+
+        try {
+            this.executor.execute(() -> {
+                try {
+                    synchronized (this.lock) {
+                        if (this.entry == expected) {
+                            this.construct();
+                        }
+                    }
+                } catch (RuntimeException ex) {
+                    LOGGER.warn("Unable to refresh value; serving stale value.", ex);
+                } finally {
+                    this.refreshing = 0;
+                }
+            });
+        } catch (RuntimeException ex) {
+            this.refreshing = 0;
+            LOGGER.warn("Unable to schedule refresh; serving stale value.", ex);
+        }
+    }
+
+    private T construct() {
+        final FailureCache<T> failures = this.failures;
+        final FailureCache.State backoff = failures == null ? null : failures.backoff();
+        final T value;
+
+        if (failures == null) {
+            value = this.constructor.get();
+        } else if (backoff != null) {
+            return failures.reject(backoff);
+        } else {
+            try {
+                value = this.constructor.get();
+            } catch (RuntimeException ex) {
+                return failures.failed(ex);
+            }
+
+            failures.succeed();
+        }
+
+        final long ttl = this.ttlNanos;
+        final long maxStale = this.maxStaleNanos;
+        final long window = this.refreshAheadNanos;
+        final long refreshAfter = window == 0L
+                ? ttl
+                : ttl - window + ThreadLocalRandom.current().nextLong(window / 2L + 1L);
+        final long staleAfter = maxStale > Long.MAX_VALUE - ttl
+                ? Long.MAX_VALUE
+                : ttl + maxStale;
+
+        this.entry = new Entry<>(value, System.nanoTime(), refreshAfter, staleAfter);
+
+        final Consumer<T> callback = this.onRefresh;
+
+        if (callback != null) {
+            callback.accept(value);
+        }
+
+        return value;
+    }
+}
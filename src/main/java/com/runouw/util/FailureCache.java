@@ -0,0 +1,217 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Supplier;
+
+/**
+ * The failure state of a wrapper. Once a constructor fails, calls within the
+ * backoff window are rejected without calling it again: they return the
+ * fallback value, or throw an IllegalStateException caused by the last
+ * failure if there is no fallback.
+ * <p>
+ * This is thread-safe. The failure count, the end of the backoff window and
+ * the last failure are kept in one immutable snapshot that is replaced
+ * atomically, so a reader never sees them from different failures.
+ *
+ * @author zmichaels
+ * @param <T> the type of the object.
+ * @since 26.10.16
+ */
+final class FailureCache<T> {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<FailureCache, State> STATE
+            = AtomicReferenceFieldUpdater.newUpdater(FailureCache.class, State.class, "state");
+
+    private static final State NONE = new State(0, 0L, null);
+
+    /**
+     * A snapshot of the failure state. Callers that decide to reject a call
+     * pass the snapshot they checked to reject, so the rejection describes
+     * the failure that caused it even if a call succeeds in between.
+     */
+    static final class State {
+
+        private final int consecutiveFailures;
+        private final long retryAt;
+        private final RuntimeException lastFailure;
+
+        private State(final int consecutiveFailures, final long retryAt, final RuntimeException lastFailure) {
+            this.consecutiveFailures = consecutiveFailures;
+            this.retryAt = retryAt;
+            this.lastFailure = lastFailure;
+        }
+
+        private boolean isBackingOff() {
+            return this.consecutiveFailures > 0 && this.retryAt - System.nanoTime() > 0L;
+        }
+    }
+
+    private volatile BackoffPolicy policy = null;
+    private volatile Supplier<T> fallback = null;
+    private volatile FailureListener listener = null;
+    private volatile State state = NONE;
+
+    void setPolicy(final BackoffPolicy policy) {
+        this.policy = policy;
+    }
+
+    void setFallback(final Supplier<T> fallback) {
+        this.fallback = fallback;
+    }
+
+    void setListener(final FailureListener listener) {
+        this.listener = listener;
+    }
+
+    int getConsecutiveFailures() {
+        return this.state.consecutiveFailures;
+    }
+
+    boolean isBackingOff() {
+        return this.state.isBackingOff();
+    }
+
+    /**
+     * Retrieves the current state if calls are being rejected.
+     *
+     * @return the state, or null if the backoff window has elapsed.
+     */
+    State backoff() {
+        final State current = this.state;
+
+        return current.isBackingOff() ? current : null;
+    }
+
+    /**
+     * Checks if a backoff policy or a fallback is set. Wrappers that would
+     * otherwise cache a failure retry it once the backoff window elapses.
+     *
+     * @return true if failures are retried.
+     */
+    boolean isRetryEnabled() {
+        return this.policy != null || this.fallback != null;
+    }
+
+    /**
+     * Records a failure and starts the backoff window.
+     *
+     * @param cause the exception thrown by the constructor.
+     */
+    void fail(final RuntimeException cause) {
+        final BackoffPolicy policy = this.policy;
+        State current;
+        State next;
+        long backoff;
+
+        do {
+            current = this.state;
+
+            final int failures = current.consecutiveFailures < Integer.MAX_VALUE
+                    ? current.consecutiveFailures + 1
+                    : Integer.MAX_VALUE;
+
+            backoff = policy == null ? 0L : policy.delayNanos(failures);
+            next = new State(failures, System.nanoTime() + backoff, cause);
+        } while (!STATE.compareAndSet(this, current, next));
+
+        final FailureListener listener = this.listener;
+
+        if (listener != null) {
+            listener.onFailure(cause, next.consecutiveFailures, backoff);
+        }
+    }
+
+    void succeed() {
+        // most calls succeed without a failure to clear; skip the write.
+        if (this.state != NONE) {
+            this.state = NONE;
+        }
+    }
+
+    /**
+     * Records a failure of the current call.
+     *
+     * @param cause the exception thrown by the constructor.
+     * @return the fallback value.
+     * @throws RuntimeException the cause if there is no fallback.
+     */
+    T failed(final RuntimeException cause) {
+        this.fail(cause);
+        return this.fallback(cause);
+    }
+
+    /**
+     * Retrieves the fallback value for a call that failed.
+     *
+     * @param cause the exception the call failed with.
+     * @return the fallback value.
+     * @throws RuntimeException the cause if there is no fallback.
+     */
+    T fallback(final RuntimeException cause) {
+        final Supplier<T> fallback = this.fallback;
+
+        if (fallback != null) {
+            return fallback.get();
+        }
+
+        throw cause;
+    }
+
+    /**
+     * Rejects a call within the backoff window.
+     *
+     * @param backoff the state returned by backoff.
+     * @return the fallback value.
+     * @throws IllegalStateException if there is no fallback. Its cause is the
+     * exception of the last failure.
+     */
+    T reject(final State backoff) {
+        final Supplier<T> fallback = this.fallback;
+
+        if (fallback != null) {
+            return fallback.get();
+        }
+
+        throw rejection(backoff);
+    }
+
+    /**
+     * Creates the exception for a call within the backoff window. A new
+     * exception is created for every call so that its stack trace belongs to
+     * the caller.
+     *
+     * @param backoff the state returned by backoff.
+     * @return the exception. Its cause is the exception of the last failure.
+     */
+    static IllegalStateException rejection(final State backoff) {
+        return new IllegalStateException(
+                "Backing off after " + backoff.consecutiveFailures + " consecutive failures!",
+                backoff.lastFailure);
+    }
+}
@@ -0,0 +1,171 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram with power-of-two buckets. Bucket i counts durations
+ * in [2^(i-1), 2^i) nanoseconds, so percentiles are accurate to within a
+ * factor of two. Recording is a pair of striped increments and never
+ * allocates.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * Constructs a new empty LatencyHistogram.
+     *
+     * @since 26.10.16
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos the duration in nanoseconds. Negative values are recorded
+     * as 0.
+     * @since 26.10.16
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0L, nanos);
+
+        this.buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value))].increment();
+        this.totalNanos.add(value);
+    }
+
+    /**
+     * Retrieves the number of recorded durations.
+     *
+     * @return the count.
+     * @since 26.10.16
+     */
+    public long getCount() {
+        long count = 0L;
+
+        for (LongAdder bucket : this.buckets) {
+            count += bucket.sum();
+        }
+
+        return count;
+    }
+
+    /**
+     * Retrieves the sum of all recorded durations.
+     *
+     * @return the total in nanoseconds.
+     * @since 26.10.16
+     */
+    public long getTotalNanos() {
+        return this.totalNanos.sum();
+    }
+
+    /**
+     * Retrieves the mean recorded duration.
+     *
+     * @return the mean in nanoseconds, or 0 if nothing was recorded.
+     * @since 26.10.16
+     */
+    public double getMeanNanos() {
+        final long count = this.getCount();
+
+        return count == 0L ? 0.0 : (double) this.getTotalNanos() / count;
+    }
+
+    /**
+     * Retrieves an upper bound of the duration at the specified percentile.
+     *
+     * @param percentile the percentile, between 0 and 100.
+     * @return the upper bound of the bucket holding the percentile, in
+     * nanoseconds.
+     * @since 26.10.16
+     */
+    public long getPercentileNanos(final double percentile) {
+        final long[] counts = this.getBucketCounts();
+        long total = 0L;
+
+        for (long count : counts) {
+            total += count;
+        }
+
+        if (total == 0L) {
+            return 0L;
+        }
+
+        final long rank = Math.max(1L, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0L;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+
+            if (seen >= rank) {
+                return i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1L;
+            }
+        }
+
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Retrieves a snapshot of the bucket counts.
+     *
+     * @return the count of each bucket.
+     * @since 26.10.16
+     */
+    public long[] getBucketCounts() {
+        final long[] counts = new long[BUCKETS];
+
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.buckets[i].sum();
+        }
+
+        return counts;
+    }
+
+    /**
+     * Clears all recorded durations.
+     *
+     * @since 26.10.16
+     */
+    public void reset() {
+        for (LongAdder bucket : this.buckets) {
+            bucket.reset();
+        }
+
+        this.totalNanos.reset();
+    }
+}
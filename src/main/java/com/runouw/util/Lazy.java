@@ -25,6 +25,9 @@
  */
 package com.runouw.util;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Objects;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -43,8 +46,11 @@ public class Lazy<T> implements Deferrable<T> {
     
     private T instance;
     private final Supplier<T> constructor;
+    private final Collection<Deferrable<?>> dependencies;
     private boolean isInitialized = false;
     private Consumer<T> onInitialize = null;
+    private WrapperMetrics metrics = null;
+    private FailureCache<T> failures = null;
 
     /**
      * Sets a callback method for when the object is initialized.
@@ -56,6 +62,81 @@ public class Lazy<T> implements Deferrable<T> {
         this.onInitialize = callback;
     }
 
+    /**
+     * Sets the metrics that initializations are recorded into. Null disables
+     * metrics.
+     *
+     * @param metrics the metrics to record into.
+     * @since 26.10.16
+     */
+    public void setMetrics(final WrapperMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    private FailureCache<T> failures() {
+        if (this.failures == null) {
+            this.failures = new FailureCache<>();
+        }
+
+        return this.failures;
+    }
+
+    /**
+     * Sets how long to wait before calling the constructor again after it
+     * throws. Until then, get throws an IllegalStateException caused by
+     * that exception, or returns the fallback value if one is set. Null
+     * retries on every call, which is the default.
+     *
+     * @param policy the backoff policy.
+     * @since 26.10.16
+     */
+    public void setBackoff(final BackoffPolicy policy) {
+        this.failures().setPolicy(policy);
+    }
+
+    /**
+     * Sets a supplier for the value returned while the constructor is
+     * failing. Fallback values are not stored; the object stays uninitialized
+     * until the constructor succeeds.
+     *
+     * @param fallback the fallback supplier. Null throws instead.
+     * @since 26.10.16
+     */
+    public void setFallback(final Supplier<T> fallback) {
+        this.failures().setFallback(fallback);
+    }
+
+    /**
+     * Sets a callback for when the constructor throws.
+     *
+     * @param listener the callback.
+     * @since 26.10.16
+     */
+    public void setOnFailure(final FailureListener listener) {
+        this.failures().setListener(listener);
+    }
+
+    /**
+     * Retrieves the number of times the constructor failed since it last
+     * succeeded.
+     *
+     * @return the number of consecutive failures.
+     * @since 26.10.16
+     */
+    public int getConsecutiveFailures() {
+        return this.failures == null ? 0 : this.failures.getConsecutiveFailures();
+    }
+
+    /**
+     * Checks if calls are currently rejected because the constructor failed.
+     *
+     * @return true if the backoff window has not elapsed.
+     * @since 26.10.16
+     */
+    public boolean isBackingOff() {
+        return this.failures != null && this.failures.isBackingOff();
+    }
+
     /**
      * Constructs a new Lazy initialization object.
      *
@@ -63,7 +144,49 @@ public class Lazy<T> implements Deferrable<T> {
      * @since 15.07.29
      */
     public Lazy(final Supplier<T> constructor) {
+        this(constructor, Collections.emptyList());
+    }
+
+    private Lazy(final Supplier<T> constructor, final Collection<Deferrable<?>> dependencies) {
         this.constructor = Objects.requireNonNull(constructor);
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * Constructs a new Lazy initialization object whose constructor calls get
+     * on other Deferrables. Declaring them lets LazyGroup initialize them
+     * before this object, in parallel with unrelated objects.
+     *
+     * @param <T> the type of the object.
+     * @param constructor the constructor for the object.
+     * @param dependencies the Deferrables the constructor reads.
+     * @return the Lazy initialization object.
+     * @since 26.10.16
+     */
+    public static <T> Lazy<T> dependent(final Supplier<T> constructor, final Deferrable<?>... dependencies) {
+        for (Deferrable<?> dependency : dependencies) {
+            Objects.requireNonNull(dependency);
+        }
+
+        return new Lazy<>(constructor, Collections.unmodifiableList(Arrays.asList(dependencies.clone())));
+    }
+
+    /**
+     * Constructs a new Lazy initialization object that may be shared between
+     * threads. The constructor is guaranteed to be called only once.
+     *
+     * @param <T> the type of the object.
+     * @param constructor the constructor for the object.
+     * @return the thread-safe Lazy initialization object.
+     * @since 26.10.16
+     */
+    public static <T> ConcurrentLazy<T> concurrent(final Supplier<T> constructor) {
+        return new ConcurrentLazy<>(constructor);
+    }
+
+    @Override
+    public Collection<Deferrable<?>> dependencies() {
+        return this.dependencies;
     }
 
     @Override
@@ -79,7 +202,23 @@ public class Lazy<T> implements Deferrable<T> {
             LOGGER.warn("Restore called when object has already been initialized!");
         }
         
-        this.instance = this.constructor.get();
+        final FailureCache<T> failures = this.failures;
+        final FailureCache.State backoff = failures == null ? null : failures.backoff();
+
+        if (failures == null) {
+            this.instance = this.construct();
+        } else if (backoff != null) {
+            return failures.reject(backoff);
+        } else {
+            try {
+                this.instance = this.construct();
+            } catch (RuntimeException ex) {
+                return failures.failed(ex);
+            }
+
+            failures.succeed();
+        }
+
         this.isInitialized = true;
         
         if(this.onInitialize != null) {
@@ -89,6 +228,28 @@ public class Lazy<T> implements Deferrable<T> {
         return this.instance;
     }
 
+    private T construct() {
+        final WrapperMetrics metrics = this.metrics;
+
+        if (metrics == null && !EventLog.ENABLED) {
+            return this.constructor.get();
+        }
+
+        final long start = System.nanoTime();
+        final T value = this.constructor.get();
+        final long elapsed = System.nanoTime() - start;
+
+        if (metrics != null) {
+            metrics.recordInitialization(elapsed);
+        }
+
+        if (EventLog.ENABLED) {
+            EventLog.record(EventLog.Type.INITIALIZE, this, elapsed);
+        }
+
+        return value;
+    }
+
     /**
      * Checks of the object has been initialized.
      *
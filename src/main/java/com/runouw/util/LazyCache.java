@@ -0,0 +1,521 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A bounded, thread-safe cache of lazily constructed values. Each value is
+ * constructed at most once no matter how many threads request its key at the
+ * same time; the other threads wait for that construction. A fixed set of
+ * striped locks guards the bookkeeping of each key, but the constructor runs
+ * outside of them, so a constructor may load other keys from the same cache.
+ * Reading a value that is already loaded takes no lock at all.
+ * <p>
+ * A constructor that requests, directly or through other keys, the key that
+ * its own thread is constructing throws IllegalStateException. Constructors
+ * on different threads that wait for each other's keys are not detected and
+ * wait forever.
+ * <p>
+ * When the cache holds more than its maximum size, values are evicted with
+ * the CLOCK (second chance) policy. With soft retention enabled, evicted
+ * values are demoted to soft references instead of being dropped. A demoted
+ * value is promoted back if it is requested before the garbage collector
+ * reclaims it, as with Unloadable.deferredUnload.
+ * <p>
+ * Keys and values cannot be null.
+ *
+ * @author zmichaels
+ * @param <K> the type of the keys.
+ * @param <V> the type of the values.
+ * @since 26.10.16
+ */
+public class LazyCache<K, V> {
+
+    private static final int STRIPES = 64;
+    // the clock is purged of dead nodes once it holds this many times more
+    // nodes than the map.
+    private static final int PURGE_RATIO = 2;
+
+    private static final class Node<K, V> {
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<Node> QUEUED
+                = AtomicIntegerFieldUpdater.newUpdater(Node.class, "queued");
+
+        private final K key;
+        private volatile V value = null;
+        private volatile SoftValue<K, V> demoted = null;
+        private volatile boolean isReferenced = false;
+        // 1 while the node is in the clock; keeps a node from being queued
+        // more than once.
+        private volatile int queued = 0;
+        // guarded by the stripe lock of the key.
+        private CompletableFuture<V> loading = null;
+        private Thread loader = null;
+
+        private Node(final K key) {
+            this.key = key;
+        }
+    }
+
+    private static final class SoftValue<K, V> extends SoftReference<V> {
+
+        private final Node<K, V> node;
+
+        private SoftValue(final Node<K, V> node, final V value, final ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.node = node;
+        }
+    }
+
+    private final Function<? super K, ? extends V> constructor;
+    private final int maximumSize;
+    private final ConcurrentHashMap<K, Node<K, V>> nodes = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[STRIPES];
+    private final Queue<Node<K, V>> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger clockSize = new AtomicInteger();
+    private final AtomicInteger size = new AtomicInteger();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final ReferenceQueue<V> reclaimed = new ReferenceQueue<>();
+    private volatile boolean isSoftRetained = false;
+
+    /**
+     * Constructs a new LazyCache.
+     *
+     * @param constructor the function that constructs the value for a key.
+     * @param maximumSize the maximum number of values held strongly.
+     * @since 26.10.16
+     */
+    public LazyCache(final Function<? super K, ? extends V> constructor, final int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive!");
+        }
+
+        this.constructor = Objects.requireNonNull(constructor);
+        this.maximumSize = maximumSize;
+
+        for (int i = 0; i < STRIPES; i++) {
+            this.locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Sets whether evicted values are demoted to soft references instead of
+     * being discarded.
+     *
+     * @param isSoftRetained true to demote evicted values.
+     * @since 26.10.16
+     */
+    public void setSoftRetention(final boolean isSoftRetained) {
+        this.isSoftRetained = isSoftRetained;
+    }
+
+    private Object lockFor(final Object key) {
+        final int hash = key.hashCode();
+
+        return this.locks[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Retrieves the value for a key, constructing it if it is not loaded.
+     *
+     * @param key the key.
+     * @return the value.
+     * @since 26.10.16
+     */
+    public V get(final K key) {
+        final Node<K, V> node = this.nodes.get(key);
+
+        if (node != null) {
+            final V value = node.value;
+
+            if (value != null) {
+                if (!node.isReferenced) {
+                    node.isReferenced = true;
+                }
+
+                return value;
+            }
+        }
+
+        return this.load(Objects.requireNonNull(key));
+    }
+
+    /**
+     * Retrieves the value for a key if it is loaded. This never constructs a
+     * value.
+     *
+     * @param key the key.
+     * @return the value, or null if it is not loaded.
+     * @since 26.10.16
+     */
+    public V getIfPresent(final K key) {
+        final Node<K, V> node = this.nodes.get(key);
+
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Retrieves a Deferrable view of a key. get on the view is the same as get
+     * on the cache; restore constructs a new value for the key.
+     *
+     * @param key the key.
+     * @return the Deferrable view.
+     * @since 26.10.16
+     */
+    public Deferrable<V> deferred(final K key) {
+        Objects.requireNonNull(key);
+
+        return new Deferrable<V>() {
+            @Override
+            public V get() {
+                return LazyCache.this.get(key);
+            }
+
+            @Override
+            public V restore() {
+                return LazyCache.this.refresh(key);
+            }
+        };
+    }
+
+    /**
+     * Constructs a new value for a key, replacing the current one.
+     *
+     * @param key the key.
+     * @return the new value.
+     * @since 26.10.16
+     */
+    public V refresh(final K key) {
+        this.invalidate(key);
+        return this.load(Objects.requireNonNull(key));
+    }
+
+    private V load(final K key) {
+        this.drainReclaimed();
+
+        Node<K, V> node = null;
+        CompletableFuture<V> future = null;
+        V salvaged = null;
+
+        synchronized (this.lockFor(key)) {
+            Node<K, V> current = this.nodes.get(key);
+
+            if (current != null) {
+                final V value = current.value;
+
+                if (value != null) {
+                    return value;
+                }
+
+                final SoftValue<K, V> demoted = current.demoted;
+
+                salvaged = demoted == null ? null : demoted.get();
+
+                if (salvaged != null) {
+                    current.demoted = null;
+                    this.admit(current, salvaged);
+                }
+            } else {
+                current = new Node<>(key);
+                this.nodes.put(key, current);
+            }
+
+            if (salvaged == null) {
+                node = current;
+
+                if (node.loading != null) {
+                    if (node.loader == Thread.currentThread()) {
+                        throw new IllegalStateException("Recursive load of key: " + key);
+                    }
+
+                    future = node.loading;
+                } else {
+                    node.loading = new CompletableFuture<>();
+                    node.loader = Thread.currentThread();
+                }
+            }
+        }
+
+        if (salvaged != null) {
+            // a salvaged value counts against the bound like a loaded one.
+            this.evictIfNeeded();
+            return salvaged;
+        }
+
+        return future != null
+                ? join(future)
+                : this.construct(node);
+    }
+
+    private V construct(final Node<K, V> node) {
+        final Object lock = this.lockFor(node.key);
+        final CompletableFuture<V> future = node.loading;
+        final V loaded;
+
+        try {
+            loaded = Objects.requireNonNull(this.constructor.apply(node.key), "Constructed value cannot be null!");
+        } catch (RuntimeException | Error ex) {
+            synchronized (lock) {
+                node.loading = null;
+                node.loader = null;
+
+                // a node without a value is never admitted to the clock, so
+                // nothing else would remove it.
+                if (node.value == null && node.demoted == null) {
+                    this.nodes.remove(node.key, node);
+                }
+            }
+
+            future.completeExceptionally(ex);
+            throw ex;
+        }
+
+        synchronized (lock) {
+            node.loading = null;
+            node.loader = null;
+
+            // a node that was invalidated during construction is not cached;
+            // its waiters still receive the value.
+            if (this.nodes.get(node.key) == node) {
+                node.demoted = null;
+                this.admit(node, loaded);
+            }
+        }
+
+        future.complete(loaded);
+        this.evictIfNeeded();
+        return loaded;
+    }
+
+    private static <V> V join(final CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            final Throwable cause = ex.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw ex;
+        }
+    }
+
+    private void admit(final Node<K, V> node, final V value) {
+        node.value = value;
+        node.isReferenced = true;
+        this.size.incrementAndGet();
+        this.enqueue(node);
+    }
+
+    private void enqueue(final Node<K, V> node) {
+        if (Node.QUEUED.compareAndSet(node, 0, 1)) {
+            this.clock.offer(node);
+            this.clockSize.incrementAndGet();
+        }
+    }
+
+    /**
+     * Drops a node that was taken off the clock. The value is read again
+     * after the node is marked as not queued, so a node that is admitted at
+     * the same time is queued again by one side or the other.
+     */
+    private void dequeued(final Node<K, V> node) {
+        node.queued = 0;
+        this.clockSize.decrementAndGet();
+
+        if (node.value != null && this.nodes.get(node.key) == node) {
+            this.enqueue(node);
+        }
+    }
+
+    private void evictIfNeeded() {
+        while (this.size.get() > this.maximumSize) {
+            // only one thread sweeps at a time; the others skip ahead.
+            if (!this.evictionLock.tryLock()) {
+                return;
+            }
+
+            try {
+                while (this.size.get() > this.maximumSize) {
+                    final Node<K, V> node = this.clock.poll();
+
+                    if (node == null) {
+                        return;
+                    } else if (node.value == null) {
+                        this.dequeued(node);
+                    } else if (node.isReferenced) {
+                        node.isReferenced = false;
+                        this.clock.offer(node);
+                    } else {
+                        this.evict(node);
+                        this.dequeued(node);
+                    }
+                }
+            } finally {
+                this.evictionLock.unlock();
+            }
+        }
+    }
+
+    private void purgeIfNeeded() {
+        if (this.clockSize.get() <= PURGE_RATIO * this.nodes.size() + STRIPES
+                || !this.evictionLock.tryLock()) {
+            return;
+        }
+
+        try {
+            final Iterator<Node<K, V>> it = this.clock.iterator();
+
+            while (it.hasNext()) {
+                final Node<K, V> node = it.next();
+
+                if (node.value == null) {
+                    it.remove();
+                    this.dequeued(node);
+                }
+            }
+        } finally {
+            this.evictionLock.unlock();
+        }
+    }
+
+    private void evict(final Node<K, V> node) {
+        synchronized (this.lockFor(node.key)) {
+            final V value = node.value;
+
+            if (value == null) {
+                return;
+            }
+
+            node.value = null;
+            this.size.decrementAndGet();
+
+            if (this.isSoftRetained) {
+                node.demoted = new SoftValue<>(node, value, this.reclaimed);
+            } else if (node.loading == null) {
+                this.nodes.remove(node.key, node);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void drainReclaimed() {
+        Reference<? extends V> reference;
+
+        while ((reference = this.reclaimed.poll()) != null) {
+            final Node<K, V> node = ((SoftValue<K, V>) reference).node;
+
+            synchronized (this.lockFor(node.key)) {
+                if (node.demoted == reference && node.value == null && node.loading == null) {
+                    node.demoted = null;
+                    this.nodes.remove(node.key, node);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the value for a key. A construction of the key that is in
+     * progress still completes, but its value is not cached.
+     *
+     * @param key the key.
+     * @since 26.10.16
+     */
+    public void invalidate(final K key) {
+        synchronized (this.lockFor(key)) {
+            final Node<K, V> node = this.nodes.remove(key);
+
+            if (node != null) {
+                node.demoted = null;
+
+                if (node.value != null) {
+                    node.value = null;
+                    this.size.decrementAndGet();
+                }
+            }
+        }
+
+        this.purgeIfNeeded();
+    }
+
+    /**
+     * Removes every value.
+     *
+     * @since 26.10.16
+     */
+    public void invalidateAll() {
+        this.nodes.keySet().forEach(this::invalidate);
+    }
+
+    /**
+     * Retrieves the number of values held strongly. Demoted values are not
+     * counted.
+     *
+     * @return the number of loaded values.
+     * @since 26.10.16
+     */
+    public int size() {
+        return this.size.get();
+    }
+
+    /**
+     * Retrieves the number of nodes in the clock, including dead nodes that
+     * have not been purged yet.
+     *
+     * @return the length of the clock.
+     */
+    int clockSize() {
+        return this.clockSize.get();
+    }
+
+    /**
+     * Retrieves the number of keys in the map, including keys that are only
+     * demoted or being constructed.
+     *
+     * @return the number of nodes.
+     */
+    int nodeCount() {
+        return this.nodes.size();
+    }
+}
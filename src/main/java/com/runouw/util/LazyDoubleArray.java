@@ -0,0 +1,211 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntToDoubleFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A fixed length array of lazily computed double values. Each slot is computed
+ * on first access by a function of its index. Values are stored in a double
+ * array and a bitset records which slots are initialized, so this uses far
+ * less memory than an array of LazyDouble objects.
+ * <p>
+ * Like LazyDouble, this class is not thread-safe.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+public class LazyDoubleArray {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazyDoubleArray.class);
+
+    private final double[] values;
+    private final long[] initialized;
+    private final IntToDoubleFunction constructor;
+
+    /**
+     * Constructs a new LazyDoubleArray.
+     *
+     * @param length the number of slots.
+     * @param constructor the function that computes the value of a slot from
+     * its index.
+     * @since 26.10.16
+     */
+    public LazyDoubleArray(final int length, final IntToDoubleFunction constructor) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Length cannot be negative!");
+        }
+
+        this.constructor = Objects.requireNonNull(constructor);
+        this.values = new double[length];
+        this.initialized = new long[(length + 63) >>> 6];
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= this.values.length) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+    }
+
+    /**
+     * Retrieves the number of slots.
+     *
+     * @return the length.
+     * @since 26.10.16
+     */
+    public int length() {
+        return this.values.length;
+    }
+
+    /**
+     * Checks if a slot has been initialized.
+     *
+     * @param index the index of the slot.
+     * @return true if the slot has been initialized.
+     * @since 26.10.16
+     */
+    public boolean isInitialized(final int index) {
+        this.checkIndex(index);
+        return (this.initialized[index >>> 6] & (1L << index)) != 0L;
+    }
+
+    /**
+     * Retrieves the value of a slot, computing it if it has not been
+     * initialized.
+     *
+     * @param index the index of the slot.
+     * @return the value.
+     * @since 26.10.16
+     */
+    public double get(final int index) {
+        // checks the bounds of values before touching the bitset.
+        final double value = this.values[index];
+
+        return (this.initialized[index >>> 6] & (1L << index)) != 0L
+                ? value
+                : this.restore(index);
+    }
+
+    /**
+     * Computes the value of a slot.
+     *
+     * @param index the index of the slot.
+     * @return the value.
+     * @since 26.10.16
+     */
+    public double restore(final int index) {
+        if (this.isInitialized(index)) {
+            LOGGER.warn("Restore called when slot {} has already been initialized!", index);
+        }
+
+        final double value = this.constructor.applyAsDouble(index);
+
+        this.values[index] = value;
+        this.initialized[index >>> 6] |= 1L << index;
+
+        return value;
+    }
+
+    /**
+     * Marks a slot as uninitialized. Its value is computed again on the next
+     * access.
+     *
+     * @param index the index of the slot.
+     * @since 26.10.16
+     */
+    public void invalidate(final int index) {
+        this.checkIndex(index);
+        this.initialized[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * Marks every slot as uninitialized.
+     *
+     * @since 26.10.16
+     */
+    public void invalidateAll() {
+        Arrays.fill(this.initialized, 0L);
+    }
+
+    /**
+     * Retrieves the number of initialized slots.
+     *
+     * @return the number of initialized slots.
+     * @since 26.10.16
+     */
+    public int getInitializedCount() {
+        int count = 0;
+
+        for (long word : this.initialized) {
+            count += Long.bitCount(word);
+        }
+
+        return count;
+    }
+
+    /**
+     * Computes every slot that has not been initialized yet.
+     *
+     * @since 26.10.16
+     */
+    public void initializeAll() {
+        final int length = this.values.length;
+
+        for (int word = 0; word < this.initialized.length; word++) {
+            long missing = ~this.initialized[word];
+
+            while (missing != 0L) {
+                final int index = (word << 6) + Long.numberOfTrailingZeros(missing);
+
+                if (index >= length) {
+                    break;
+                }
+
+                this.values[index] = this.constructor.applyAsDouble(index);
+                missing &= missing - 1L;
+            }
+
+            this.initialized[word] = word == this.initialized.length - 1 && (length & 63) != 0
+                    ? (1L << (length & 63)) - 1L
+                    : -1L;
+        }
+    }
+
+    /**
+     * Copies every value into a new array, computing any slots that have not
+     * been initialized.
+     *
+     * @return the values.
+     * @since 26.10.16
+     */
+    public double[] toArray() {
+        this.initializeAll();
+        return this.values.clone();
+    }
+}
@@ -0,0 +1,150 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * LazyGroup initializes a graph of Deferrables in parallel. Each Deferrable
+ * is initialized once all of its dependencies are, so independent branches
+ * of the graph are initialized on different threads.
+ * <p>
+ * Each Deferrable is initialized by a single task and its dependencies
+ * complete before that task starts, so plain Lazy objects may be used as long
+ * as their constructors only call get on declared dependencies. Constructors
+ * that read undeclared Deferrables should read thread-safe ones, such as
+ * ConcurrentLazy.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+public class LazyGroup {
+
+    private final List<Deferrable<?>> members = new ArrayList<>();
+
+    /**
+     * Adds Deferrables to the group. Their dependencies are included
+     * automatically.
+     *
+     * @param members the Deferrables to add.
+     * @return self reference.
+     * @since 26.10.16
+     */
+    public LazyGroup add(final Deferrable<?>... members) {
+        for (Deferrable<?> member : members) {
+            this.members.add(Objects.requireNonNull(member));
+        }
+
+        return this;
+    }
+
+    /**
+     * Initializes every Deferrable in the group on the common fork-join pool.
+     *
+     * @return a future that completes once every Deferrable is initialized.
+     * @throws IllegalStateException if the dependencies contain a cycle.
+     * @since 26.10.16
+     */
+    public CompletableFuture<Void> initializeAll() {
+        return this.initializeAll(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Initializes every Deferrable in the group on an Executor.
+     *
+     * @param executor the Executor to initialize on.
+     * @return a future that completes once every Deferrable is initialized.
+     * If any initialization fails, the future completes exceptionally and
+     * the Deferrables that depend on it are not initialized.
+     * @throws IllegalStateException if the dependencies contain a cycle.
+     * @since 26.10.16
+     */
+    public CompletableFuture<Void> initializeAll(final Executor executor) {
+        Objects.requireNonNull(executor);
+
+        final Map<Deferrable<?>, CompletableFuture<Void>> scheduled = new IdentityHashMap<>();
+        final Map<Deferrable<?>, Boolean> visiting = new IdentityHashMap<>();
+        final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+
+        // build the whole graph before running anything so a cycle leaves
+        // every member uninitialized.
+        final List<Runnable> starts = new ArrayList<>();
+
+        for (Deferrable<?> member : this.members) {
+            tasks.add(schedule(member, executor, scheduled, visiting, starts));
+        }
+
+        starts.forEach(Runnable::run);
+
+        return CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[tasks.size()]));
+    }
+
+    private static CompletableFuture<Void> schedule(
+            final Deferrable<?> node, final Executor executor,
+            final Map<Deferrable<?>, CompletableFuture<Void>> scheduled,
+            final Map<Deferrable<?>, Boolean> visiting,
+            final List<Runnable> starts) {
+
+        final CompletableFuture<Void> existing = scheduled.get(node);
+
+        if (existing != null) {
+            return existing;
+        } else if (visiting.put(node, Boolean.TRUE) != null) {
+            throw new IllegalStateException("Dependency cycle detected at: " + node);
+        }
+
+        final List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+
+        for (Deferrable<?> dependency : node.dependencies()) {
+            dependencies.add(schedule(dependency, executor, scheduled, visiting, starts));
+        }
+
+        final CompletableFuture<Void> task;
+
+        if (dependencies.isEmpty()) {
+            final CompletableFuture<Void> start = new CompletableFuture<>();
+
+            starts.add(() -> start.complete(null));
+            task = start.thenRunAsync(node::get, executor);
+        } else {
+            task = CompletableFuture
+                    .allOf(dependencies.toArray(new CompletableFuture<?>[dependencies.size()]))
+                    .thenRunAsync(node::get, executor);
+        }
+
+        visiting.remove(node);
+        scheduled.put(node, task);
+
+        return task;
+    }
+}
@@ -0,0 +1,132 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A named collection of WrapperMetrics. Reporters can walk the registry with
+ * forEach, or the metrics can be published as MXBeans on the platform MBean
+ * server.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+public final class MetricsRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsRegistry.class);
+    private static final String DOMAIN = "com.runouw.util";
+
+    private final Map<String, WrapperMetrics> metrics = new ConcurrentHashMap<>();
+    private volatile boolean isPublished = false;
+
+    /**
+     * Retrieves the metrics registered under a name, creating them if they do
+     * not exist.
+     *
+     * @param name the name of the metrics.
+     * @return the metrics.
+     * @since 26.10.16
+     */
+    public WrapperMetrics metrics(final String name) {
+        return this.metrics.computeIfAbsent(Objects.requireNonNull(name), key -> {
+            final WrapperMetrics created = new WrapperMetrics();
+
+            if (this.isPublished) {
+                publish(key, created);
+            }
+
+            return created;
+        });
+    }
+
+    /**
+     * Executes a method for every registered metrics object.
+     *
+     * @param action the method to execute with each name and metrics.
+     * @since 26.10.16
+     */
+    public void forEach(final BiConsumer<String, WrapperMetrics> action) {
+        this.metrics.forEach(action);
+    }
+
+    /**
+     * Publishes every registered metrics object, and every metrics object
+     * registered afterwards, as an MXBean on the platform MBean server.
+     *
+     * @since 26.10.16
+     */
+    public void publish() {
+        this.isPublished = true;
+        this.metrics.forEach(MetricsRegistry::publish);
+    }
+
+    /**
+     * Removes every MXBean published by this registry.
+     *
+     * @since 26.10.16
+     */
+    public void unpublish() {
+        this.isPublished = false;
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        this.metrics.keySet().forEach(name -> {
+            try {
+                server.unregisterMBean(objectName(name));
+            } catch (InstanceNotFoundException ex) {
+                LOGGER.trace("Metrics {} were not published.", name);
+            } catch (JMException ex) {
+                LOGGER.warn("Unable to unpublish metrics {}!", name, ex);
+            }
+        });
+    }
+
+    private static ObjectName objectName(final String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=WrapperMetrics,name=" + ObjectName.quote(name));
+    }
+
+    private static void publish(final String name, final WrapperMetrics metrics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName(name));
+        } catch (InstanceAlreadyExistsException ex) {
+            LOGGER.trace("Metrics {} are already published.", name);
+        } catch (JMException ex) {
+            LOGGER.warn("Unable to publish metrics {}!", name, ex);
+        }
+    }
+}
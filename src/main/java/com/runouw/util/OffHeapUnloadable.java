@@ -0,0 +1,207 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An Unloadable for large byte payloads that are held outside of the Java
+ * heap. The payload is copied into a block from a DirectArena when it is
+ * loaded, and the block is returned to the arena as soon as it is unloaded.
+ * <p>
+ * get returns read-only views of the block without copying it. Views must
+ * not be used after the payload is unloaded. The block may already hold
+ * another payload, or its memory may have been freed, in which case reading
+ * the view can crash the JVM. Copy the bytes out of the view if they are
+ * needed for longer than the payload stays loaded.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+public class OffHeapUnloadable implements Supplier<ByteBuffer> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapUnloadable.class);
+
+    private final DirectArena arena;
+    private final Supplier<ByteBuffer> restoreFunction;
+    private ByteBuffer block = null;
+    private ByteBuffer view = null;
+    private Consumer<ByteBuffer> onReload = null;
+    private Consumer<ByteBuffer> onUnload = null;
+    private WrapperMetrics metrics = null;
+
+    /**
+     * Constructs a new OffHeapUnloadable. The payload is loaded lazily.
+     *
+     * @param arena the arena to allocate the payload from.
+     * @param restoreFunction function that produces the payload. The bytes
+     * between its position and limit are copied off-heap.
+     * @since 26.10.16
+     */
+    public OffHeapUnloadable(final DirectArena arena, final Supplier<ByteBuffer> restoreFunction) {
+        this.arena = Objects.requireNonNull(arena);
+        this.restoreFunction = Objects.requireNonNull(restoreFunction);
+    }
+
+    /**
+     * Sets a callback for when the payload is reloaded.
+     *
+     * @param callback the method to call when the payload is reloaded.
+     * @since 26.10.16
+     */
+    public void setOnReload(final Consumer<ByteBuffer> callback) {
+        this.onReload = callback;
+    }
+
+    /**
+     * Sets a callback for when the payload is unloaded. The callback is the
+     * last chance to read the payload.
+     *
+     * @param callback the method to call when the payload is unloaded.
+     * @since 26.10.16
+     */
+    public void setOnUnload(final Consumer<ByteBuffer> callback) {
+        this.onUnload = callback;
+    }
+
+    /**
+     * Sets the metrics that hits, restores and unloads are recorded into.
+     * Null disables metrics.
+     *
+     * @param metrics the metrics to record into.
+     * @since 26.10.16
+     */
+    public void setMetrics(final WrapperMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Checks if the payload is present in memory.
+     *
+     * @return true if the payload is loaded.
+     * @since 26.10.16
+     */
+    public boolean isPresent() {
+        return this.view != null;
+    }
+
+    /**
+     * Retrieves a read-only view of the payload. The payload is restored if
+     * it is not present. Each call returns a new view with its own position
+     * and limit; no bytes are copied. The view must not be used after the
+     * payload is unloaded.
+     *
+     * @return the payload.
+     * @since 26.10.16
+     */
+    @Override
+    public ByteBuffer get() {
+        if (this.view == null) {
+            this.restore();
+        } else if (this.metrics != null) {
+            this.metrics.recordHit();
+        }
+
+        return this.view.duplicate();
+    }
+
+    private void restore() {
+        final WrapperMetrics metrics = this.metrics;
+
+        if (metrics == null && !EventLog.ENABLED) {
+            this.load();
+            return;
+        }
+
+        final long start = System.nanoTime();
+
+        this.load();
+
+        final long elapsed = System.nanoTime() - start;
+
+        if (metrics != null) {
+            metrics.recordRestore(elapsed);
+        }
+
+        if (EventLog.ENABLED) {
+            EventLog.record(EventLog.Type.RESTORE, this, elapsed);
+        }
+    }
+
+    private void load() {
+        LOGGER.trace("Restoring payload...");
+
+        final ByteBuffer source = this.restoreFunction.get().duplicate();
+        final ByteBuffer target = this.arena.allocate(source.remaining());
+
+        target.put(source);
+        ((Buffer) target).flip();
+
+        this.block = target;
+        this.view = target.asReadOnlyBuffer();
+
+        if (this.onReload != null) {
+            this.onReload.accept(this.view.duplicate());
+        }
+    }
+
+    /**
+     * Unloads the payload and returns its memory to the arena. Views returned
+     * by get must not be used afterwards.
+     *
+     * @since 26.10.16
+     */
+    public void unload() {
+        if (this.block == null) {
+            LOGGER.trace("Unload called when no value is held!");
+            return;
+        }
+
+        if (this.onUnload != null) {
+            this.onUnload.accept(this.view.duplicate());
+        }
+
+        final ByteBuffer released = this.block;
+
+        this.block = null;
+        this.view = null;
+        this.arena.release(released);
+
+        if (this.metrics != null) {
+            this.metrics.recordUnload();
+        }
+
+        if (EventLog.ENABLED) {
+            EventLog.record(EventLog.Type.UNLOAD, this, 0L);
+        }
+    }
+}
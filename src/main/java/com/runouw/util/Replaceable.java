@@ -38,7 +38,13 @@ import java.util.function.Supplier;
  */
 public class Replaceable<T> implements Supplier<T> {
 
+    private static final Object UNRESOLVED = new Object();
+    private static final byte UNKNOWN = 0;
+    private static final byte DEFAULT = 1;
+    private static final byte NOT_DEFAULT = 2;
+
     private Consumer<T> onReplaceCallback = null;
+    private WrapperMetrics metrics = null;
 
     /**
      * Sets a callback for when the contained value changes.
@@ -50,6 +56,17 @@ public class Replaceable<T> implements Supplier<T> {
         this.onReplaceCallback = callback;
     }
 
+    /**
+     * Sets the metrics that replacements are recorded into. Null disables
+     * metrics.
+     *
+     * @param metrics the metrics to record into.
+     * @since 26.10.16
+     */
+    public void setMetrics(final WrapperMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * Constructs a Replaceable object that has the default value of null.
      *
@@ -63,16 +80,34 @@ public class Replaceable<T> implements Supplier<T> {
 
     private T replacedValue;
     private final Supplier<T> defaultSupplier;
+    private final boolean isMemoized;
+    // the default value, read once, when the supplier is a
+    // Singletons.Constant.
+    private final boolean isConstantDefault;
+    private final T constantDefault;
+    // memoized mode only: the default value, the value returned by get and
+    // whether that value is equivalent to the default.
+    private Object memoizedDefault = UNRESOLVED;
+    private Object resolvedValue = UNRESOLVED;
+    private byte resolvedState = UNKNOWN;
+
+    private Replaceable(final Supplier<T> defaultSupplier, final boolean isMemoized) {
+        this.defaultSupplier = Objects.requireNonNull(defaultSupplier);
+        this.isMemoized = isMemoized;
+        this.isConstantDefault = defaultSupplier instanceof Singletons.Constant;
+        this.constantDefault = this.isConstantDefault ? defaultSupplier.get() : null;
+    }
 
     /**
      * Constructs a Replaceable container wrapped around a supplier to the
-     * default value.
+     * default value. If the supplier is a Singletons.Constant, the default
+     * value is read once.
      *
      * @param defaultSupplier supplier to the default value.
      * @since 15.09.01
      */
     public Replaceable(final Supplier<T> defaultSupplier) {
-        this.defaultSupplier = Objects.requireNonNull(defaultSupplier);
+        this(defaultSupplier, false);
     }
 
     /**
@@ -83,9 +118,62 @@ public class Replaceable<T> implements Supplier<T> {
      * @since 15.09.01
      */
     public Replaceable(final T defaultValue) {
-        this.defaultSupplier = () -> {
-            return defaultValue;
-        };
+        this(Singletons.of(defaultValue), false);
+    }
+
+    /**
+     * Constructs a Replaceable container that calls the default supplier only
+     * once. The default value is resolved on first use and kept until
+     * invalidateDefault is called. Whether the value is equivalent to the
+     * default is decided when it is set, so get and isDefault are field
+     * reads; a value that is mutated after it is set must be set again for
+     * isDefault to notice.
+     *
+     * @param <T> the type of the internal object.
+     * @param defaultSupplier supplier to the default value.
+     * @return the Replaceable object.
+     * @since 26.10.16
+     */
+    public static <T> Replaceable<T> memoized(final Supplier<T> defaultSupplier) {
+        return new Replaceable<>(defaultSupplier, true);
+    }
+
+    /**
+     * Discards the memoized default value. The default supplier will be
+     * called again the next time the default value is needed. This has no
+     * effect if the default value is not memoized.
+     *
+     * @since 26.10.16
+     */
+    public void invalidateDefault() {
+        this.memoizedDefault = UNRESOLVED;
+        this.resolvedValue = UNRESOLVED;
+        this.resolvedState = UNKNOWN;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T defaultValue() {
+        if (this.isConstantDefault) {
+            return this.constantDefault;
+        } else if (!this.isMemoized) {
+            return this.defaultSupplier.get();
+        } else if (this.memoizedDefault == UNRESOLVED) {
+            this.memoizedDefault = this.defaultSupplier.get();
+        }
+
+        return (T) this.memoizedDefault;
+    }
+
+    private T resolve() {
+        final T defaultValue = this.defaultValue();
+        final T value = this.replacedValue != null ? this.replacedValue : defaultValue;
+
+        this.resolvedState = this.replacedValue == null || this.replacedValue.equals(defaultValue)
+                ? DEFAULT
+                : NOT_DEFAULT;
+
+        this.resolvedValue = value;
+        return value;
     }
 
     /**
@@ -120,7 +208,15 @@ public class Replaceable<T> implements Supplier<T> {
      * @since 15.09.01
      */
     public boolean isDefault() {
-        return this.replacedValue == null || this.replacedValue.equals(this.defaultSupplier.get());
+        if (this.isMemoized) {
+            if (this.resolvedState == UNKNOWN) {
+                this.resolve();
+            }
+
+            return this.resolvedState == DEFAULT;
+        }
+
+        return this.replacedValue == null || this.replacedValue.equals(this.defaultValue());
     }
 
     /**
@@ -130,8 +226,15 @@ public class Replaceable<T> implements Supplier<T> {
      * @since 15.09.01
      */
     @Override
+    @SuppressWarnings("unchecked")
     public T get() {
-        return this.isReplaced() ? this.replacedValue : this.defaultSupplier.get();
+        if (this.isMemoized) {
+            final Object value = this.resolvedValue;
+
+            return value != UNRESOLVED ? (T) value : this.resolve();
+        }
+
+        return this.isReplaced() ? this.replacedValue : this.defaultValue();
     }
 
     /**
@@ -142,15 +245,67 @@ public class Replaceable<T> implements Supplier<T> {
      * @since 15.09.01
      */
     public void set(final T replacedValue) {
+        if (this.metrics != null && this.replacedValue != replacedValue) {
+            this.metrics.recordReplace();
+        }
+
+        if (EventLog.ENABLED && this.replacedValue != replacedValue) {
+            EventLog.record(EventLog.Type.REPLACE, this, 0L);
+        }
+
         if (this.onReplaceCallback != null && this.replacedValue != replacedValue) {
             if (replacedValue == null) {
-                this.onReplaceCallback.accept(this.defaultSupplier.get());
+                this.onReplaceCallback.accept(this.defaultValue());
             } else {
                 this.onReplaceCallback.accept(replacedValue);
             }
         }
 
         this.replacedValue = replacedValue;
+
+        if (this.isMemoized) {
+            this.resolve();
+        }
+    }
+
+    /**
+     * Replaces the value without running the replace callback. Used by
+     * ReplaceableGroup to defer notifications until a transaction commits.
+     *
+     * @param replacedValue the value to set.
+     * @return true if the value changed.
+     */
+    boolean assign(final T replacedValue) {
+        if (this.replacedValue == replacedValue) {
+            return false;
+        }
+
+        if (this.metrics != null) {
+            this.metrics.recordReplace();
+        }
+
+        if (EventLog.ENABLED) {
+            EventLog.record(EventLog.Type.REPLACE, this, 0L);
+        }
+
+        this.replacedValue = replacedValue;
+
+        if (this.isMemoized) {
+            this.resolve();
+        }
+
+        return true;
+    }
+
+    /**
+     * Runs the replace callback.
+     *
+     * @param value the value to pass to the callback.
+     */
+    void notifyReplaced(final T value) {
+        if (this.onReplaceCallback != null) {
+            this.onReplaceCallback.accept(value);
+        }
     }
 
     /**
@@ -0,0 +1,195 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.Objects;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * A double specialization of Replaceable. The replaced value is stored as a
+ * primitive alongside a flag that marks it as replaced, so setting and
+ * reading the value never boxes.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+public class ReplaceableDouble implements DoubleSupplier {
+
+    private DoubleConsumer onReplaceCallback = null;
+    private WrapperMetrics metrics = null;
+    private double replacedValue;
+    private boolean isReplaced = false;
+    private final DoubleSupplier defaultSupplier;
+    // the default value, read once, when the supplier is a
+    // Singletons.ConstantDouble.
+    private final boolean isConstantDefault;
+    private final double constantDefault;
+
+    /**
+     * Sets a callback for when the contained value changes.
+     *
+     * @param callback the callback to run if the contained value changes.
+     * @since 26.10.16
+     */
+    public void setOnReplace(final DoubleConsumer callback) {
+        this.onReplaceCallback = callback;
+    }
+
+    /**
+     * Sets the metrics that replacements are recorded into. Null disables
+     * metrics.
+     *
+     * @param metrics the metrics to record into.
+     * @since 26.10.16
+     */
+    public void setMetrics(final WrapperMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Constructs a ReplaceableDouble wrapped around a supplier to the default
+     * value. If the supplier is a Singletons.ConstantDouble, the default
+     * value is read once.
+     *
+     * @param defaultSupplier supplier to the default value.
+     * @since 26.10.16
+     */
+    public ReplaceableDouble(final DoubleSupplier defaultSupplier) {
+        this.defaultSupplier = Objects.requireNonNull(defaultSupplier);
+        this.isConstantDefault = defaultSupplier instanceof Singletons.ConstantDouble;
+        this.constantDefault = this.isConstantDefault ? defaultSupplier.getAsDouble() : 0.0;
+    }
+
+    /**
+     * Constructs a ReplaceableDouble wrapped around the specified default value.
+     *
+     * @param defaultValue the default value.
+     * @since 26.10.16
+     */
+    public ReplaceableDouble(final double defaultValue) {
+        this(Singletons.of(defaultValue));
+    }
+
+    private double defaultValue() {
+        return this.isConstantDefault ? this.constantDefault : this.defaultSupplier.getAsDouble();
+    }
+
+    /**
+     * Checks if the value was set. This will return true even if the value was
+     * replaced with a value equal to the default value.
+     *
+     * @return true if the value was set.
+     * @since 26.10.16
+     */
+    public boolean isReplaced() {
+        return this.isReplaced;
+    }
+
+    /**
+     * Executes a callback if the internal value is not the default value.
+     *
+     * @param isReplaced the function to execute if the value was changed.
+     * @since 26.10.16
+     */
+    public void ifReplaced(final DoubleConsumer isReplaced) {
+        if (this.isReplaced) {
+            isReplaced.accept(this.replacedValue);
+        }
+    }
+
+    /**
+     * Checks if the value is equal to the default value.
+     *
+     * @return true if the value is equal to the default value.
+     * @since 26.10.16
+     */
+    public boolean isDefault() {
+        return !this.isReplaced || Double.doubleToLongBits(this.replacedValue)
+                == Double.doubleToLongBits(this.defaultValue());
+    }
+
+    /**
+     * Retrieves the replaced value or the default value.
+     *
+     * @return the value.
+     * @since 26.10.16
+     */
+    @Override
+    public double getAsDouble() {
+        return this.isReplaced ? this.replacedValue : this.defaultValue();
+    }
+
+    /**
+     * Replaces the default value with a new value.
+     *
+     * @param replacedValue the value to set.
+     * @since 26.10.16
+     */
+    public void set(final double replacedValue) {
+        if (!this.isReplaced
+                || Double.doubleToLongBits(this.replacedValue) != Double.doubleToLongBits(replacedValue)) {
+
+            if (this.metrics != null) {
+                this.metrics.recordReplace();
+            }
+
+            if (EventLog.ENABLED) {
+                EventLog.record(EventLog.Type.REPLACE, this, 0L);
+            }
+
+            if (this.onReplaceCallback != null) {
+                this.onReplaceCallback.accept(replacedValue);
+            }
+
+            this.replacedValue = replacedValue;
+            this.isReplaced = true;
+        }
+    }
+
+    /**
+     * Sets the value contained by ReplaceableDouble with the default.
+     *
+     * @since 26.10.16
+     */
+    public void revertToDefault() {
+        if (this.isReplaced) {
+            if (this.metrics != null) {
+                this.metrics.recordReplace();
+            }
+
+            if (EventLog.ENABLED) {
+                EventLog.record(EventLog.Type.REPLACE, this, 0L);
+            }
+
+            if (this.onReplaceCallback != null) {
+                this.onReplaceCallback.accept(this.defaultValue());
+            }
+
+            this.isReplaced = false;
+        }
+    }
+}
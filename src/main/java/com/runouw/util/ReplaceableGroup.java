@@ -0,0 +1,277 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Groups changes to several Replaceables into transactions. Values set in a
+ * transaction are applied when it commits, before any notification runs.
+ * Several sets of the same Replaceable are coalesced into one change, and the
+ * onReplace callbacks and the group's commit listener run once per commit,
+ * optionally on an Executor.
+ * <p>
+ * Replaceable is not thread-safe, and a commit applies its values one at a
+ * time, so it is not atomic with respect to readers on other threads. The
+ * Replaceables in a group should only be read and committed from one thread,
+ * or under a lock held by the caller. Only the notifications may run on the
+ * Executor.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+public final class ReplaceableGroup {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplaceableGroup.class);
+
+    private final Executor executor;
+    private volatile Consumer<List<Change<?>>> onCommit = null;
+
+    /**
+     * Constructs a ReplaceableGroup that notifies on the committing thread.
+     *
+     * @since 26.10.16
+     */
+    public ReplaceableGroup() {
+        this.executor = null;
+    }
+
+    /**
+     * Constructs a ReplaceableGroup that notifies on an Executor. All of the
+     * notifications for one commit run in a single task.
+     *
+     * @param executor the executor to notify on.
+     * @since 26.10.16
+     */
+    public ReplaceableGroup(final Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Sets a listener that receives every change made by a commit in a
+     * single call. The listener is not called if a commit changed nothing.
+     *
+     * @param listener the listener.
+     * @since 26.10.16
+     */
+    public void setOnCommit(final Consumer<List<Change<?>>> listener) {
+        this.onCommit = listener;
+    }
+
+    /**
+     * Starts a new transaction.
+     *
+     * @return the transaction.
+     * @since 26.10.16
+     */
+    public Transaction begin() {
+        return new Transaction();
+    }
+
+    /**
+     * A single change made by a commit.
+     *
+     * @param <T> the type held by the Replaceable.
+     * @since 26.10.16
+     */
+    public static final class Change<T> {
+
+        private final Replaceable<T> replaceable;
+        private final T previous;
+        private final T current;
+
+        private Change(final Replaceable<T> replaceable, final T previous, final T current) {
+            this.replaceable = replaceable;
+            this.previous = previous;
+            this.current = current;
+        }
+
+        /**
+         * Retrieves the Replaceable that changed.
+         *
+         * @return the Replaceable.
+         * @since 26.10.16
+         */
+        public Replaceable<T> getReplaceable() {
+            return this.replaceable;
+        }
+
+        /**
+         * Retrieves the value before the commit.
+         *
+         * @return the previous value.
+         * @since 26.10.16
+         */
+        public T getPrevious() {
+            return this.previous;
+        }
+
+        /**
+         * Retrieves the value after the commit.
+         *
+         * @return the current value.
+         * @since 26.10.16
+         */
+        public T getCurrent() {
+            return this.current;
+        }
+
+        private void notifyReplaced() {
+            this.replaceable.notifyReplaced(this.current);
+        }
+    }
+
+    /**
+     * A set of pending changes. A Transaction may be committed or rolled back
+     * once and is not thread-safe.
+     *
+     * @since 26.10.16
+     */
+    public final class Transaction {
+
+        private final Map<Replaceable<?>, Object> pending = new LinkedHashMap<>();
+        private boolean isFinished = false;
+
+        private Transaction() {
+        }
+
+        /**
+         * Stages a new value for a Replaceable. This replaces any value
+         * staged earlier in the same transaction.
+         *
+         * @param <T> the type held by the Replaceable.
+         * @param replaceable the Replaceable to change.
+         * @param value the value to set. Null reverts to the default.
+         * @return self reference.
+         * @since 26.10.16
+         */
+        public <T> Transaction set(final Replaceable<T> replaceable, final T value) {
+            if (this.isFinished) {
+                throw new IllegalStateException("Transaction has already finished!");
+            }
+
+            this.pending.put(replaceable, value);
+            return this;
+        }
+
+        /**
+         * Stages reverting a Replaceable to its default value.
+         *
+         * @param <T> the type held by the Replaceable.
+         * @param replaceable the Replaceable to revert.
+         * @return self reference.
+         * @since 26.10.16
+         */
+        public <T> Transaction revertToDefault(final Replaceable<T> replaceable) {
+            return this.set(replaceable, null);
+        }
+
+        /**
+         * Discards every staged value.
+         *
+         * @since 26.10.16
+         */
+        public void rollback() {
+            this.isFinished = true;
+            this.pending.clear();
+        }
+
+        /**
+         * Applies every staged value and then notifies. Values are applied
+         * before any callback runs, so callbacks observe the whole commit.
+         *
+         * @return an unmodifiable list of the changes that were made. The
+         * commit listener receives the same list.
+         * @since 26.10.16
+         */
+        public List<Change<?>> commit() {
+            if (this.isFinished) {
+                throw new IllegalStateException("Transaction has already finished!");
+            }
+
+            this.isFinished = true;
+
+            final List<Change<?>> changes = new ArrayList<>(this.pending.size());
+
+            for (Map.Entry<Replaceable<?>, Object> entry : this.pending.entrySet()) {
+                final Change<?> change = apply(entry.getKey(), entry.getValue());
+
+                if (change != null) {
+                    changes.add(change);
+                }
+            }
+
+            this.pending.clear();
+
+            if (changes.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            // nothing else holds the backing list, so the view is immutable.
+            final List<Change<?>> committed = Collections.unmodifiableList(changes);
+
+            final Consumer<List<Change<?>>> listener = ReplaceableGroup.this.onCommit;
+            final Runnable notify = () -> {
+                committed.forEach(Change::notifyReplaced);
+
+                if (listener != null) {
+                    listener.accept(committed);
+                }
+            };
+
+            if (ReplaceableGroup.this.executor == null) {
+                notify.run();
+            } else {
+                ReplaceableGroup.this.executor.execute(() -> {
+                    try {
+                        notify.run();
+                    } catch (RuntimeException ex) {
+                        LOGGER.error("Error while notifying committed changes!", ex);
+                    }
+                });
+            }
+
+            return committed;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Change<T> apply(final Replaceable<T> replaceable, final Object value) {
+        final T previous = replaceable.get();
+
+        return replaceable.assign((T) value)
+                ? new Change<>(replaceable, previous, replaceable.get())
+                : null;
+    }
+}
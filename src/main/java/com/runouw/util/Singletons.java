@@ -17,20 +17,169 @@ import java.util.function.Supplier;
  */
 public final class Singletons {
     private Singletons() {}
-    
+
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 127;
+
+    private static final Constant<?> NULL = new Constant<>(null);
+    private static final Constant<Boolean> TRUE = new Constant<>(Boolean.TRUE);
+    private static final Constant<Boolean> FALSE = new Constant<>(Boolean.FALSE);
+    private static final ConstantInt[] INTS = new ConstantInt[CACHE_HIGH - CACHE_LOW + 1];
+    private static final ConstantLong[] LONGS = new ConstantLong[CACHE_HIGH - CACHE_LOW + 1];
+    private static final ConstantDouble ZERO = new ConstantDouble(0.0);
+    private static final ConstantDouble ONE = new ConstantDouble(1.0);
+
+    static {
+        for (int i = 0; i < INTS.length; i++) {
+            INTS[i] = new ConstantInt(i + CACHE_LOW);
+            LONGS[i] = new ConstantLong(i + CACHE_LOW);
+        }
+    }
+
+    /**
+     * A Supplier that always returns the same value. Wrappers check for this
+     * type and read the value once instead of calling the Supplier.
+     *
+     * @param <T> the type of the value.
+     * @since 26.10.16
+     */
+    public static final class Constant<T> implements Supplier<T> {
+
+        private final T value;
+
+        private Constant(final T value) {
+            this.value = value;
+        }
+
+        @Override
+        public T get() {
+            return this.value;
+        }
+    }
+
+    /**
+     * An IntSupplier that always returns the same value.
+     *
+     * @since 26.10.16
+     */
+    public static final class ConstantInt implements IntSupplier {
+
+        private final int value;
+
+        private ConstantInt(final int value) {
+            this.value = value;
+        }
+
+        @Override
+        public int getAsInt() {
+            return this.value;
+        }
+    }
+
+    /**
+     * A LongSupplier that always returns the same value.
+     *
+     * @since 26.10.16
+     */
+    public static final class ConstantLong implements LongSupplier {
+
+        private final long value;
+
+        private ConstantLong(final long value) {
+            this.value = value;
+        }
+
+        @Override
+        public long getAsLong() {
+            return this.value;
+        }
+    }
+
+    /**
+     * A DoubleSupplier that always returns the same value.
+     *
+     * @since 26.10.16
+     */
+    public static final class ConstantDouble implements DoubleSupplier {
+
+        private final double value;
+
+        private ConstantDouble(final double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double getAsDouble() {
+            return this.value;
+        }
+    }
+
+    /**
+     * Retrieves a Supplier that always returns the value. The Supplier is a
+     * Constant; null and the Boolean values share a single instance.
+     *
+     * @param <T> the type of the value.
+     * @param value the value.
+     * @return the Supplier.
+     */
+    @SuppressWarnings("unchecked")
     public static <T> Supplier<T> of(final T value) {
-        return () -> value;
+        if (value == null) {
+            return (Supplier<T>) NULL;
+        } else if (value == Boolean.TRUE) {
+            return (Supplier<T>) TRUE;
+        } else if (value == Boolean.FALSE) {
+            return (Supplier<T>) FALSE;
+        } else {
+            return new Constant<>(value);
+        }
     }
-    
+
+    /**
+     * Retrieves an IntSupplier that always returns the value. The
+     * IntSupplier is a ConstantInt; values from -128 to 127 share a single
+     * instance.
+     *
+     * @param value the value.
+     * @return the IntSupplier.
+     */
     public static IntSupplier of(final int value) {
-        return () -> value;
+        return value >= CACHE_LOW && value <= CACHE_HIGH
+                ? INTS[value - CACHE_LOW]
+                : new ConstantInt(value);
     }
-    
+
+    /**
+     * Retrieves a LongSupplier that always returns the value. The
+     * LongSupplier is a ConstantLong; values from -128 to 127 share a single
+     * instance.
+     *
+     * @param value the value.
+     * @return the LongSupplier.
+     */
     public static LongSupplier of(final long value) {
-        return () -> value;
+        return value >= CACHE_LOW && value <= CACHE_HIGH
+                ? LONGS[(int) value - CACHE_LOW]
+                : new ConstantLong(value);
     }
-    
+
+    /**
+     * Retrieves a DoubleSupplier that always returns the value. The
+     * DoubleSupplier is a ConstantDouble; 0.0 and 1.0 share a single
+     * instance.
+     *
+     * @param value the value.
+     * @return the DoubleSupplier.
+     */
     public static DoubleSupplier of(final double value) {
-        return () -> value;
+        final long bits = Double.doubleToRawLongBits(value);
+
+        if (bits == Double.doubleToRawLongBits(0.0)) {
+            return ZERO;
+        } else if (bits == Double.doubleToRawLongBits(1.0)) {
+            return ONE;
+        } else {
+            return new ConstantDouble(value);
+        }
     }
 }
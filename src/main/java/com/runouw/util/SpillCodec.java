@@ -0,0 +1,143 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Converts objects to and from bytes so that they can be spilled to a
+ * SpillStore.
+ *
+ * @author zmichaels
+ * @param <T> the type of object.
+ * @since 26.10.16
+ */
+public interface SpillCodec<T> {
+
+    /**
+     * Encodes an object.
+     *
+     * @param value the object to encode.
+     * @return the encoded bytes.
+     * @since 26.10.16
+     */
+    byte[] encode(T value);
+
+    /**
+     * Decodes an object. The buffer is positioned at the first byte of the
+     * encoded object and its limit is the last byte.
+     *
+     * @param buffer the encoded bytes.
+     * @return the decoded object.
+     * @since 26.10.16
+     */
+    T decode(ByteBuffer buffer);
+
+    /**
+     * Retrieves a codec that stores byte arrays as is.
+     *
+     * @return the codec.
+     * @since 26.10.16
+     */
+    static SpillCodec<byte[]> bytes() {
+        return new SpillCodec<byte[]>() {
+            @Override
+            public byte[] encode(final byte[] value) {
+                return value;
+            }
+
+            @Override
+            public byte[] decode(final ByteBuffer buffer) {
+                final byte[] out = new byte[buffer.remaining()];
+
+                buffer.get(out);
+                return out;
+            }
+        };
+    }
+
+    /**
+     * Retrieves a codec that uses Java serialization.
+     *
+     * @param <T> the type of object.
+     * @return the codec.
+     * @since 26.10.16
+     */
+    static <T extends Serializable> SpillCodec<T> serializable() {
+        return new SpillCodec<T>() {
+            @Override
+            public byte[] encode(final T value) {
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+                try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                    out.writeObject(value);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+
+                return bytes.toByteArray();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T decode(final ByteBuffer buffer) {
+                final InputStream bytes = new InputStream() {
+                    @Override
+                    public int read() {
+                        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+                    }
+
+                    @Override
+                    public int read(final byte[] b, final int off, final int len) {
+                        if (!buffer.hasRemaining()) {
+                            return -1;
+                        }
+
+                        final int count = Math.min(len, buffer.remaining());
+
+                        buffer.get(b, off, count);
+                        return count;
+                    }
+                };
+
+                try (ObjectInputStream in = new ObjectInputStream(bytes)) {
+                    return (T) in.readObject();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                } catch (ClassNotFoundException ex) {
+                    throw new IllegalStateException("Spilled class is not available!", ex);
+                }
+            }
+        };
+    }
+}
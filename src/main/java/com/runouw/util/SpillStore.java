@@ -0,0 +1,283 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A file that holds snapshots of unloaded objects. The file is mapped in
+ * large windows that are shared by every snapshot, so restoring a spilled
+ * object does not copy it through the Java heap before decoding, and the
+ * number of mappings stays small no matter how many objects are spilled.
+ * <p>
+ * Each snapshot is stored in a region whose size is the next power of two of
+ * the snapshot size. Released regions are kept on a free list per size and
+ * reused by later snapshots, so the file only grows when no released region
+ * of the right size is available. Snapshots cannot be larger than a window.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+public final class SpillStore implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpillStore.class);
+    private static final int MIN_REGION_SHIFT = 6;
+    private static final int WINDOW_SHIFT = 26;
+
+    /**
+     * The size of each mapped window of the file. This is also the largest
+     * snapshot that can be spilled.
+     *
+     * @since 26.10.16
+     */
+    public static final int WINDOW_SIZE = 1 << WINDOW_SHIFT;
+
+    private final Path path;
+    private final boolean deleteOnClose;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> windows = new ArrayList<>();
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final ArrayDeque<Long>[] freeRegions = new ArrayDeque[WINDOW_SHIFT - MIN_REGION_SHIFT + 1];
+    private long position = 0L;
+    private long liveBytes = 0L;
+
+    private SpillStore(final Path path, final boolean deleteOnClose) throws IOException {
+        this.path = path;
+        this.deleteOnClose = deleteOnClose;
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        for (int i = 0; i < this.freeRegions.length; i++) {
+            this.freeRegions[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Opens a SpillStore backed by the specified file. Any existing contents
+     * are discarded. The file is kept when the store is closed.
+     *
+     * @param path the file to spill to.
+     * @return the SpillStore.
+     * @throws IOException if the file cannot be opened.
+     * @since 26.10.16
+     */
+    public static SpillStore open(final Path path) throws IOException {
+        return new SpillStore(path, false);
+    }
+
+    /**
+     * Opens a SpillStore backed by a temporary file. The file is deleted when
+     * the store is closed.
+     *
+     * @return the SpillStore.
+     * @throws IOException if the file cannot be created.
+     * @since 26.10.16
+     */
+    public static SpillStore createTemp() throws IOException {
+        final Path temp = Files.createTempFile("unloadable", ".spill");
+
+        temp.toFile().deleteOnExit();
+        return new SpillStore(temp, true);
+    }
+
+    private static int sizeClass(final int length) {
+        final int shift = 32 - Integer.numberOfLeadingZeros(Math.max(length, 1) - 1);
+
+        return Math.max(shift, MIN_REGION_SHIFT) - MIN_REGION_SHIFT;
+    }
+
+    /**
+     * Writes a snapshot to a free region of the file.
+     *
+     * @param data the snapshot.
+     * @return the region holding the snapshot.
+     * @throws IllegalArgumentException if the snapshot is larger than a
+     * window.
+     */
+    Region write(final byte[] data) {
+        if (data.length > WINDOW_SIZE) {
+            throw new IllegalArgumentException("Snapshot of " + data.length + " bytes is larger than the spill window!");
+        }
+
+        final int sizeClass = sizeClass(data.length);
+        final ByteBuffer view;
+        final long offset;
+
+        synchronized (this) {
+            offset = this.allocate(sizeClass);
+            view = this.window(offset).duplicate();
+            this.liveBytes += 1L << (sizeClass + MIN_REGION_SHIFT);
+        }
+
+        final int start = (int) (offset & (WINDOW_SIZE - 1));
+
+        view.limit(start + data.length).position(start);
+        view.put(data);
+        view.position(start);
+
+        return new Region(this, offset, sizeClass, view.slice().asReadOnlyBuffer());
+    }
+
+    private long allocate(final int sizeClass) {
+        final Long reused = this.freeRegions[sizeClass].poll();
+
+        if (reused != null) {
+            return reused;
+        }
+
+        // regions are aligned to their size, so they never cross a window.
+        final long size = 1L << (sizeClass + MIN_REGION_SHIFT);
+        final long offset = (this.position + size - 1) & -size;
+
+        this.position = offset + size;
+        return offset;
+    }
+
+    private MappedByteBuffer window(final long offset) {
+        final int index = (int) (offset >>> WINDOW_SHIFT);
+
+        try {
+            while (this.windows.size() <= index) {
+                final long start = (long) this.windows.size() << WINDOW_SHIFT;
+
+                this.windows.add(this.channel.map(FileChannel.MapMode.READ_WRITE, start, WINDOW_SIZE));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return this.windows.get(index);
+    }
+
+    private synchronized void release(final Region region) {
+        this.freeRegions[region.sizeClass].push(region.offset);
+        this.liveBytes -= 1L << (region.sizeClass + MIN_REGION_SHIFT);
+    }
+
+    /**
+     * Retrieves the number of bytes of the file that have been handed out to
+     * snapshots, including regions that have since been released.
+     *
+     * @return the size of the used part of the spill file.
+     * @since 26.10.16
+     */
+    public synchronized long size() {
+        return this.position;
+    }
+
+    /**
+     * Retrieves the number of bytes held by regions that have not been
+     * released.
+     *
+     * @return the number of bytes in use.
+     * @since 26.10.16
+     */
+    public synchronized long getLiveBytes() {
+        return this.liveBytes;
+    }
+
+    /**
+     * Closes the spill file. The mapped windows remain readable until they
+     * are garbage collected.
+     *
+     * @throws IOException if the file could not be closed.
+     * @since 26.10.16
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+
+        if (this.deleteOnClose) {
+            try {
+                Files.deleteIfExists(this.path);
+            } catch (IOException ex) {
+                // some platforms refuse to delete files that are still mapped.
+                LOGGER.debug("Unable to delete spill file {}.", this.path, ex);
+            }
+        }
+    }
+
+    /**
+     * A region of the spill file that holds a single snapshot. The region is
+     * returned to the store when it is released; the snapshot must not be
+     * read afterwards.
+     */
+    static final class Region {
+
+        private final SpillStore store;
+        private final long offset;
+        private final int sizeClass;
+        private final ByteBuffer snapshot;
+        private boolean isReleased = false;
+
+        private Region(final SpillStore store, final long offset, final int sizeClass, final ByteBuffer snapshot) {
+            this.store = store;
+            this.offset = offset;
+            this.sizeClass = sizeClass;
+            this.snapshot = snapshot;
+        }
+
+        /**
+         * Retrieves a read-only view of the snapshot.
+         *
+         * @return the snapshot, positioned at its first byte.
+         */
+        ByteBuffer read() {
+            if (this.isReleased) {
+                throw new IllegalStateException("Spill region has been released!");
+            }
+
+            return this.snapshot.duplicate();
+        }
+
+        /**
+         * Returns the region to the store. Releasing a region more than once
+         * has no effect.
+         */
+        void release() {
+            if (!this.isReleased) {
+                this.isReleased = true;
+                this.store.release(this);
+            }
+        }
+    }
+}
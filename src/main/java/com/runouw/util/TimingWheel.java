@@ -0,0 +1,293 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hierarchical timing wheel driven by a single daemon thread. Timers are
+ * hashed into 4 levels of 64 slots; level n covers 64^(n+1) ticks, and the
+ * timers in a higher level slot are moved down a level each time the level
+ * below completes a revolution. Scheduling is a lock-free enqueue and the
+ * wheel itself is only touched by its thread, so thousands of timers cost
+ * one thread and no per-timer tasks.
+ * <p>
+ * Ticks are ints that may wrap around; they are only compared by
+ * difference.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+final class TimingWheel {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimingWheel.class);
+
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int MAX_DELAY = (1 << (LEVELS * SLOT_BITS)) - 1;
+
+    /**
+     * A timer that can be scheduled on a TimingWheel. expire is executed on
+     * the wheel's thread and may reschedule the timer by returning a new
+     * deadline.
+     */
+    abstract static class Timer {
+
+        private Timer next;
+        private int deadline;
+        private volatile boolean isCancelled = false;
+
+        /**
+         * Called when the deadline is reached.
+         *
+         * @param now the current tick.
+         * @return the tick to expire again at, or now to stop.
+         */
+        abstract int expire(int now);
+
+        /**
+         * Prevents the timer from expiring. The wheel discards it lazily.
+         */
+        final void cancel() {
+            this.isCancelled = true;
+        }
+    }
+
+    private final String name;
+    private final long tickNanos;
+    private final Timer[][] slots = new Timer[LEVELS][SLOTS];
+    private final Queue<Timer> pending = new ConcurrentLinkedQueue<>();
+    private final long origin = System.nanoTime();
+    // the last tick processed by the wheel's thread. Only that thread writes
+    // it; it stops advancing while the wheel has no timers.
+    private volatile int tick = 0;
+    private int size = 0;
+    private Thread thread = null;
+
+    /**
+     * Constructs a new TimingWheel. The thread is started by the first
+     * schedule.
+     *
+     * @param name the name of the thread.
+     * @param tick the duration of a tick.
+     * @param unit the unit of the tick.
+     */
+    TimingWheel(final String name, final long tick, final TimeUnit unit) {
+        this.name = Objects.requireNonNull(name);
+        this.tickNanos = unit.toNanos(tick);
+
+        if (this.tickNanos <= 0L) {
+            throw new IllegalArgumentException("Tick must be positive!");
+        }
+    }
+
+    /**
+     * Retrieves the tick the wheel has advanced to. This is a single volatile
+     * read. While timers are scheduled it lags the clock by at most a tick,
+     * but it stops while the wheel has no timers, so deadlines of new timers
+     * are computed from clock instead.
+     *
+     * @return the current tick.
+     */
+    int now() {
+        return this.tick;
+    }
+
+    /**
+     * Computes the current tick from the clock. This is correct even while
+     * the wheel is parked, but costs a clock read and a division.
+     *
+     * @return the current tick.
+     */
+    int clock() {
+        return (int) ((System.nanoTime() - this.origin) / this.tickNanos);
+    }
+
+    /**
+     * Converts a duration to a number of ticks, rounding up. Durations longer
+     * than the wheel can represent are clamped; timers that are clamped simply
+     * expire early and reschedule themselves.
+     *
+     * @param duration the duration.
+     * @param unit the unit of the duration.
+     * @return the number of ticks.
+     */
+    int toTicks(final long duration, final TimeUnit unit) {
+        final long nanos = unit.toNanos(duration);
+        final long ticks = nanos / this.tickNanos + (nanos % this.tickNanos == 0L ? 0L : 1L);
+
+        return (int) Math.max(1L, Math.min(MAX_DELAY, ticks));
+    }
+
+    /**
+     * Schedules a timer. This may be called from any thread.
+     *
+     * @param timer the timer.
+     * @param deadline the tick to expire at.
+     */
+    void schedule(final Timer timer, final int deadline) {
+        timer.deadline = deadline;
+        this.pending.offer(timer);
+
+        final Thread current;
+
+        synchronized (this) {
+            if (this.thread == null) {
+                this.thread = new Thread(this::run, this.name);
+                this.thread.setDaemon(true);
+                this.thread.start();
+                return;
+            }
+
+            current = this.thread;
+        }
+
+        LockSupport.unpark(current);
+    }
+
+    private void run() {
+        while (true) {
+            final long elapsed = System.nanoTime() - this.origin;
+            final int target = (int) (elapsed / this.tickNanos);
+
+            if (this.size == 0) {
+                // nothing to expire; jump straight to the current tick before
+                // placing new timers so they are not placed behind the clock.
+                this.tick = target;
+            }
+
+            Timer timer;
+
+            while ((timer = this.pending.poll()) != null) {
+                this.place(timer, timer.deadline);
+            }
+
+            if (this.size == 0) {
+                if (this.pending.isEmpty()) {
+                    LockSupport.park(this);
+                }
+            } else if (target - this.tick > 0) {
+                while (target - this.tick > 0) {
+                    this.advance();
+                }
+            } else {
+                LockSupport.parkNanos(this, (long) (target + 1) * this.tickNanos - elapsed);
+            }
+        }
+    }
+
+    private void place(final Timer timer, final int deadline) {
+        final int delay = Math.min(MAX_DELAY, deadline - this.tick);
+        // a deadline that is due goes into the next slot to be processed.
+        final int due = delay <= 0 ? this.tick + 1 : this.tick + delay;
+        int level = 0;
+
+        while (level < LEVELS - 1 && delay >= 1 << ((level + 1) * SLOT_BITS)) {
+            level++;
+        }
+
+        final int slot = (due >>> (level * SLOT_BITS)) & SLOT_MASK;
+
+        timer.deadline = deadline;
+        timer.next = this.slots[level][slot];
+        this.slots[level][slot] = timer;
+        this.size++;
+    }
+
+    private Timer take(final int level, final int slot) {
+        final Timer head = this.slots[level][slot];
+
+        this.slots[level][slot] = null;
+        return head;
+    }
+
+    private void advance() {
+        final int now = this.tick + 1;
+
+        this.tick = now;
+
+        // cascade from the highest level whose period just completed.
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((now & ((1 << (level * SLOT_BITS)) - 1)) == 0) {
+                Timer timer = this.take(level, (now >>> (level * SLOT_BITS)) & SLOT_MASK);
+
+                while (timer != null) {
+                    final Timer next = timer.next;
+
+                    this.size--;
+
+                    if (!timer.isCancelled) {
+                        this.place(timer, timer.deadline);
+                    }
+
+                    timer = next;
+                }
+            }
+        }
+
+        Timer timer = this.take(0, now & SLOT_MASK);
+
+        while (timer != null) {
+            final Timer next = timer.next;
+
+            this.size--;
+
+            if (!timer.isCancelled) {
+                if (timer.deadline - now > 0) {
+                    // clamped or placed early; not due yet.
+                    this.place(timer, timer.deadline);
+                } else {
+                    this.expire(timer, now);
+                }
+            }
+
+            timer = next;
+        }
+    }
+
+    private void expire(final Timer timer, final int now) {
+        final int deadline;
+
+        try {
+            deadline = timer.expire(now);
+        } catch (RuntimeException ex) {
+            LOGGER.error("Error while expiring timer!", ex);
+            return;
+        }
+
+        if (deadline - now > 0) {
+            this.place(timer, deadline);
+        }
+    }
+}
@@ -26,6 +26,7 @@
 package com.runouw.util;
 
 import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 import java.util.Objects;
@@ -44,6 +45,8 @@ import org.slf4j.LoggerFactory;
 public class Unloadable<T> implements Supplier<T> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Unloadable.class);
+    private static final ReferenceQueue<Object> RECLAIMED = new ReferenceQueue<>();
+    private static Thread reaper = null;
 
     private T instance;
     private Reference<T> retainedReference;
@@ -51,6 +54,11 @@ public class Unloadable<T> implements Supplier<T> {
     private final RetainPolicy retainPolicy;
     private Consumer<T> onReload = null;
     private Consumer<T> onUnload = null;
+    private SpillStore spillStore = null;
+    private SpillCodec<T> spillCodec = null;
+    private SpillStore.Region spilled = null;
+    private WrapperMetrics metrics = null;
+    private FailureCache<T> failures = null;
 
     /**
      * Sets a callback for when the internal resource is reloaded.
@@ -72,7 +80,285 @@ public class Unloadable<T> implements Supplier<T> {
         this.onUnload = callback;
     }
 
-    private enum RetainPolicy {
+    /**
+     * Sets the metrics that hits, salvages, restores and unloads are
+     * recorded into. Null disables metrics.
+     *
+     * @param metrics the metrics to record into.
+     * @since 26.10.16
+     */
+    public void setMetrics(final WrapperMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    private FailureCache<T> failures() {
+        if (this.failures == null) {
+            this.failures = new FailureCache<>();
+        }
+
+        return this.failures;
+    }
+
+    /**
+     * Sets how long to wait before calling the restore function again after
+     * it throws. Until then, get throws an IllegalStateException caused by
+     * that exception, or returns the fallback value if one is set. A
+     * retained object is still salvaged during the backoff window, but a
+     * spilled snapshot is not read until the window elapses. Null retries on
+     * every call, which is the default.
+     *
+     * @param policy the backoff policy.
+     * @since 26.10.16
+     */
+    public void setBackoff(final BackoffPolicy policy) {
+        this.failures().setPolicy(policy);
+    }
+
+    /**
+     * Sets a supplier for the value returned while the restore function is
+     * failing. The fallback value is not loaded into the Unloadable, so
+     * isPresent stays false.
+     *
+     * @param fallback the fallback supplier. Null throws instead.
+     * @since 26.10.16
+     */
+    public void setFallback(final Supplier<T> fallback) {
+        this.failures().setFallback(fallback);
+    }
+
+    /**
+     * Sets a callback for when the restore function throws.
+     *
+     * @param listener the callback.
+     * @since 26.10.16
+     */
+    public void setOnFailure(final FailureListener listener) {
+        this.failures().setListener(listener);
+    }
+
+    /**
+     * Retrieves the number of times restoring failed since the last
+     * successful restore.
+     *
+     * @return the number of consecutive failures.
+     * @since 26.10.16
+     */
+    public int getConsecutiveFailures() {
+        return this.failures == null ? 0 : this.failures.getConsecutiveFailures();
+    }
+
+    /**
+     * Checks if restoring is currently skipped because the restore function
+     * failed.
+     *
+     * @return true if the backoff window has not elapsed.
+     * @since 26.10.16
+     */
+    public boolean isBackingOff() {
+        return this.failures != null && this.failures.isBackingOff();
+    }
+
+    /**
+     * Enables spilling the object to disk when it is unloaded. The object is
+     * encoded the first time it is unloaded and, from then on, restored by
+     * decoding the snapshot instead of calling the restore function.
+     * <p>
+     * Snapshots are write-once: later unloads reuse the existing snapshot, so
+     * changes made to the object while it is loaded are lost. Call
+     * discardSpill after changing the object to have the next unload write a
+     * new snapshot.
+     *
+     * @param store the store to spill to. Null disables spilling.
+     * @param codec the codec used to encode and decode the object.
+     * @since 26.10.16
+     */
+    public void setSpill(final SpillStore store, final SpillCodec<T> codec) {
+        this.discardSpill();
+        this.spillStore = store;
+        this.spillCodec = store == null ? null : Objects.requireNonNull(codec);
+    }
+
+    /**
+     * Discards the spilled snapshot and returns its region to the store. The
+     * next unload will write a new one.
+     *
+     * @since 26.10.16
+     */
+    public void discardSpill() {
+        if (this.spilled != null) {
+            this.spilled.release();
+            this.spilled = null;
+        }
+    }
+
+    /**
+     * Checks if a snapshot of the object has been spilled to disk.
+     *
+     * @return true if the object will be restored from a snapshot.
+     * @since 26.10.16
+     */
+    public boolean isSpilled() {
+        return this.spilled != null;
+    }
+
+    private T restoreObject() {
+        final WrapperMetrics metrics = this.metrics;
+
+        if (metrics == null && !EventLog.ENABLED) {
+            return this.restoreFromSource();
+        }
+
+        final long start = System.nanoTime();
+        final T restored = this.restoreFromSource();
+        final long elapsed = System.nanoTime() - start;
+
+        if (metrics != null) {
+            metrics.recordRestore(elapsed);
+        }
+
+        if (EventLog.ENABLED) {
+            EventLog.record(EventLog.Type.RESTORE, this, elapsed);
+        }
+
+        return restored;
+    }
+
+    private T restoreFromSource() {
+        if (this.spilled != null) {
+            try {
+                return this.spillCodec.decode(this.spilled.read());
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Unable to restore spilled object; falling back to restore function.", ex);
+                this.discardSpill();
+            }
+        }
+
+        return this.restoreFunction.get();
+    }
+
+    private void spill(final T value) {
+        try {
+            this.spilled = this.spillStore.write(this.spillCodec.encode(value));
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Unable to spill object!", ex);
+        }
+    }
+
+    /**
+     * A retained reference that reports to its owning ConcurrentUnloadable
+     * once the garbage collector has reclaimed it. Only references whose
+     * owner wants to know are registered with the queue. The owner is held
+     * weakly so a queued reference never keeps it alive.
+     */
+    interface Retained {
+
+        void reclaimed();
+    }
+
+    static final class WeakRetained<T> extends WeakReference<T> implements Retained {
+
+        private final WeakReference<ConcurrentUnloadable<?>> owner;
+
+        WeakRetained(final T value, final ConcurrentUnloadable<?> owner) {
+            super(value, RECLAIMED);
+            this.owner = new WeakReference<>(owner);
+        }
+
+        @Override
+        public void reclaimed() {
+            final ConcurrentUnloadable<?> unloadable = this.owner.get();
+
+            if (unloadable != null) {
+                unloadable.onReclaimed(this);
+            }
+        }
+    }
+
+    static final class SoftRetained<T> extends SoftReference<T> implements Retained {
+
+        private final WeakReference<ConcurrentUnloadable<?>> owner;
+
+        SoftRetained(final T value, final ConcurrentUnloadable<?> owner) {
+            super(value, RECLAIMED);
+            this.owner = new WeakReference<>(owner);
+        }
+
+        @Override
+        public void reclaimed() {
+            final ConcurrentUnloadable<?> unloadable = this.owner.get();
+
+            if (unloadable != null) {
+                unloadable.onReclaimed(this);
+            }
+        }
+    }
+
+    /**
+     * Processes every retained reference that the garbage collector has
+     * reclaimed since the last drain. This is cheap when nothing has been
+     * reclaimed. Only ConcurrentUnloadables with a reclaim callback or rewarm
+     * enabled register their references; their callbacks, and the rewarm,
+     * run on the calling thread.
+     *
+     * @return the number of reclaimed references processed.
+     * @since 26.10.16
+     */
+    public static int drainReclaimed() {
+        int count = 0;
+        Reference<?> reference;
+
+        while ((reference = RECLAIMED.poll()) != null) {
+            reclaim(reference);
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Starts a daemon thread that processes reclaimed references as soon as
+     * the garbage collector enqueues them. Calling this more than once has no
+     * effect.
+     *
+     * @since 26.10.16
+     */
+    public static synchronized void startReaper() {
+        if (reaper == null) {
+            reaper = new Thread(Unloadable::reap, "Unloadable Reaper");
+            reaper.setDaemon(true);
+            reaper.start();
+        }
+    }
+
+    /**
+     * Stops the thread started by startReaper.
+     *
+     * @since 26.10.16
+     */
+    public static synchronized void stopReaper() {
+        if (reaper != null) {
+            reaper.interrupt();
+            reaper = null;
+        }
+    }
+
+    private static void reap() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                reclaim(RECLAIMED.remove());
+            } catch (InterruptedException ex) {
+                return;
+            } catch (RuntimeException ex) {
+                LOGGER.error("Error while processing reclaimed object!", ex);
+            }
+        }
+    }
+
+    private static void reclaim(final Reference<?> reference) {
+        ((Retained) reference).reclaimed();
+    }
+
+    enum RetainPolicy {
 
         WEAK_RETAIN,
         SOFT_RETAIN,
@@ -165,20 +451,45 @@ public class Unloadable<T> implements Supplier<T> {
     @Override
     public T get() {
         if (this.isPresent()) {
+            if (this.metrics != null) {
+                this.metrics.recordHit();
+            }
+
             return this.instance;
-        } else if (this.retainPolicy != RetainPolicy.NO_RETAIN) {
-            final T salvaged = this.retainedReference.get();
+        }
 
-            if (salvaged == null) {
-                LOGGER.trace("Restoring object...");                
-                this.instance = this.restoreFunction.get();                
-            } else {
-                LOGGER.trace("Salvaging object...");
-                this.instance = salvaged;                
+        final Reference<T> retained = this.retainedReference;
+        final T salvaged = retained == null ? null : retained.get();
+
+        this.retainedReference = null;
+
+        if (salvaged != null) {
+            if (this.metrics != null) {
+                this.metrics.recordSalvage();
             }
+
+            if (EventLog.ENABLED) {
+                EventLog.record(EventLog.Type.SALVAGE, this, 0L);
+            }
+
+            this.instance = salvaged;
         } else {
-            LOGGER.trace("Restoring object...");
-            this.instance = this.restoreFunction.get();            
+            final FailureCache<T> failures = this.failures;
+            final FailureCache.State backoff = failures == null ? null : failures.backoff();
+
+            if (failures == null) {
+                this.instance = this.restoreObject();
+            } else if (backoff != null) {
+                return failures.reject(backoff);
+            } else {
+                try {
+                    this.instance = this.restoreObject();
+                } catch (RuntimeException ex) {
+                    return failures.failed(ex);
+                }
+
+                failures.succeed();
+            }
         }
         
         if(this.onReload != null) {
@@ -200,6 +511,10 @@ public class Unloadable<T> implements Supplier<T> {
             return;
         }
 
+        if (this.spillStore != null && this.spilled == null) {
+            this.spill(this.instance);
+        }
+
         switch (this.retainPolicy) {
             case WEAK_RETAIN:
                 this.retainedReference = new WeakReference<>(this.instance);
@@ -214,5 +529,13 @@ public class Unloadable<T> implements Supplier<T> {
         }
         
         this.instance = null;
+
+        if (this.metrics != null) {
+            this.metrics.recordUnload();
+        }
+
+        if (EventLog.ENABLED) {
+            EventLog.record(EventLog.Type.UNLOAD, this, 0L);
+        }
     }
 }
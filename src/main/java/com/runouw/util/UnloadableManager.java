@@ -0,0 +1,425 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.ToLongFunction;
+import javax.management.ListenerNotFoundException;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manages the memory held by a group of ConcurrentUnloadable objects. Each
+ * registered ConcurrentUnloadable is weighed whenever it is loaded; when the
+ * total weight exceeds the budget, the least recently used ones are unloaded
+ * until the total fits again. The manager can also trim itself when the JVM
+ * reports that heap usage after a garbage collection crossed a threshold.
+ * <p>
+ * Accesses are ordered without locking, so two ConcurrentUnloadables that
+ * are accessed at the same time on different threads may be treated as
+ * equally recent.
+ * <p>
+ * A managed ConcurrentUnloadable may be unloaded on whichever thread loaded
+ * another managed one, or on the JMX notification thread when heap watching
+ * is enabled. This is why only the thread-safe ConcurrentUnloadable can be
+ * managed.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+public final class UnloadableManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UnloadableManager.class);
+    private static final AtomicLongFieldUpdater<UnloadableManager> CLOCK
+            = AtomicLongFieldUpdater.newUpdater(UnloadableManager.class, "clock");
+
+    private final Object lock = new Object();
+    private final Map<ConcurrentUnloadable<?>, Entry<?>> entries = new IdentityHashMap<>();
+    // loaded entries ordered by the access time they were queued with. An
+    // entry that was accessed since it was queued is re-keyed when it
+    // reaches the head instead of being moved on every access.
+    private final PriorityQueue<Entry<?>> lru = new PriorityQueue<>(
+            (a, b) -> Long.compare(a.queuedAccess, b.queuedAccess));
+    private long maximumWeight;
+    private long totalWeight = 0L;
+    private NotificationListener heapListener = null;
+
+    // logical clock used to order accesses; it holds the newest tick handed
+    // out and advances on every load and on every access that changes the
+    // order, using relaxed writes so that touching stays lock-free.
+    private volatile long clock = 0L;
+
+    /**
+     * Constructs a new UnloadableManager.
+     *
+     * @param maximumWeight the total weight that loaded ConcurrentUnloadables
+     * may hold.
+     * @since 26.10.16
+     */
+    public UnloadableManager(final long maximumWeight) {
+        if (maximumWeight < 0L) {
+            throw new IllegalArgumentException("Maximum weight cannot be negative!");
+        }
+
+        this.maximumWeight = maximumWeight;
+    }
+
+    /**
+     * Registers a ConcurrentUnloadable with the manager. If it is currently
+     * loaded, it is weighed immediately.
+     *
+     * @param <T> the type of object held by the ConcurrentUnloadable.
+     * @param unloadable the ConcurrentUnloadable to manage.
+     * @param weigher function that estimates the size of the held object.
+     * @return the ConcurrentUnloadable.
+     * @throws IllegalStateException if the ConcurrentUnloadable is already
+     * managed.
+     * @since 26.10.16
+     */
+    public <T> ConcurrentUnloadable<T> register(final ConcurrentUnloadable<T> unloadable, final ToLongFunction<? super T> weigher) {
+        final Entry<T> entry = new Entry<>(this, unloadable, Objects.requireNonNull(weigher));
+
+        synchronized (this.lock) {
+            if (unloadable.managerEntry != null) {
+                throw new IllegalStateException("ConcurrentUnloadable is already managed!");
+            }
+
+            this.entries.put(unloadable, entry);
+            unloadable.managerEntry = entry;
+        }
+
+        unloadable.ifPresent(entry::loaded);
+        return unloadable;
+    }
+
+    /**
+     * Stops managing a ConcurrentUnloadable. It is not unloaded.
+     *
+     * @param unloadable the ConcurrentUnloadable to release.
+     * @since 26.10.16
+     */
+    public void unregister(final ConcurrentUnloadable<?> unloadable) {
+        synchronized (this.lock) {
+            final Entry<?> entry = this.entries.remove(unloadable);
+
+            if (entry != null) {
+                if (entry.counted != null) {
+                    this.totalWeight -= entry.weight;
+                    entry.counted = null;
+                }
+
+                if (entry.isQueued) {
+                    this.lru.remove(entry);
+                    entry.isQueued = false;
+                }
+
+                unloadable.managerEntry = null;
+            }
+        }
+    }
+
+    /**
+     * Retrieves the total weight of all loaded ConcurrentUnloadables.
+     *
+     * @return the total weight.
+     * @since 26.10.16
+     */
+    public long getTotalWeight() {
+        synchronized (this.lock) {
+            return this.totalWeight;
+        }
+    }
+
+    /**
+     * Retrieves the weight budget.
+     *
+     * @return the maximum weight.
+     * @since 26.10.16
+     */
+    public long getMaximumWeight() {
+        synchronized (this.lock) {
+            return this.maximumWeight;
+        }
+    }
+
+    /**
+     * Changes the weight budget. ConcurrentUnloadables are unloaded
+     * immediately if the new budget is smaller than the total weight.
+     *
+     * @param maximumWeight the new maximum weight.
+     * @since 26.10.16
+     */
+    public void setMaximumWeight(final long maximumWeight) {
+        if (maximumWeight < 0L) {
+            throw new IllegalArgumentException("Maximum weight cannot be negative!");
+        }
+
+        final List<Entry<?>> victims;
+
+        synchronized (this.lock) {
+            this.maximumWeight = maximumWeight;
+            victims = this.selectVictims(maximumWeight, null);
+        }
+
+        this.unloadAll(victims);
+    }
+
+    /**
+     * Unloads the least recently used ConcurrentUnloadables until the total
+     * weight is at most the target weight.
+     *
+     * @param targetWeight the weight to trim to.
+     * @since 26.10.16
+     */
+    public void trimTo(final long targetWeight) {
+        final List<Entry<?>> victims;
+
+        synchronized (this.lock) {
+            victims = this.selectVictims(targetWeight, null);
+        }
+
+        this.unloadAll(victims);
+    }
+
+    /**
+     * Trims the manager when heap usage after a garbage collection exceeds a
+     * fraction of the maximum heap. This sets the collection usage threshold
+     * of every heap memory pool that supports one; the threshold is shared by
+     * the whole JVM.
+     *
+     * @param usageThreshold fraction of each pool's maximum size that
+     * triggers trimming; between 0 and 1.
+     * @param retainRatio fraction of the current total weight to keep when
+     * trimming; between 0 and 1.
+     * @since 26.10.16
+     */
+    public void watchHeap(final double usageThreshold, final double retainRatio) {
+        if (usageThreshold <= 0.0 || usageThreshold > 1.0) {
+            throw new IllegalArgumentException("Usage threshold must be in (0, 1]!");
+        } else if (retainRatio < 0.0 || retainRatio > 1.0) {
+            throw new IllegalArgumentException("Retain ratio must be in [0, 1]!");
+        }
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()) {
+                final long max = pool.getUsage().getMax();
+
+                if (max > 0L) {
+                    pool.setCollectionUsageThreshold((long) (max * usageThreshold));
+                }
+            }
+        }
+
+        final NotificationListener listener = (notification, handback) -> {
+            if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+                final long target = (long) (this.getTotalWeight() * retainRatio);
+
+                LOGGER.debug("Heap usage threshold exceeded; trimming to {}.", target);
+                this.trimTo(target);
+            }
+        };
+
+        synchronized (this.lock) {
+            this.unwatchHeap();
+            ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener(listener, null, null);
+            this.heapListener = listener;
+        }
+    }
+
+    /**
+     * Stops reacting to heap usage notifications. The collection usage
+     * thresholds set by watchHeap are left in place.
+     *
+     * @since 26.10.16
+     */
+    public void unwatchHeap() {
+        synchronized (this.lock) {
+            if (this.heapListener != null) {
+                try {
+                    ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).removeNotificationListener(this.heapListener);
+                } catch (ListenerNotFoundException ex) {
+                    LOGGER.trace("Heap listener was already removed.", ex);
+                }
+
+                this.heapListener = null;
+            }
+        }
+    }
+
+    private List<Entry<?>> selectVictims(final long targetWeight, final Entry<?> keep) {
+        if (this.totalWeight <= targetWeight) {
+            return Collections.emptyList();
+        }
+
+        final List<Entry<?>> victims = new ArrayList<>();
+        long remaining = this.totalWeight;
+        // bounds re-keying so that entries touched while they are being
+        // re-keyed cannot keep the loop going.
+        int rekeys = this.lru.size();
+        boolean isKeepPolled = false;
+
+        while (remaining > targetWeight && !this.lru.isEmpty()) {
+            final Entry<?> entry = this.lru.poll();
+            final long lastAccess = entry.lastAccess;
+
+            if (entry.counted == null) {
+                entry.isQueued = false;
+            } else if (entry.queuedAccess != lastAccess && rekeys-- > 0) {
+                entry.queuedAccess = lastAccess;
+                this.lru.offer(entry);
+            } else if (entry == keep) {
+                isKeepPolled = true;
+            } else {
+                entry.isQueued = false;
+                victims.add(entry);
+                remaining -= entry.weight;
+            }
+        }
+
+        // the entry that is being loaded was only set aside.
+        if (isKeepPolled) {
+            this.lru.offer(keep);
+        }
+
+        return victims;
+    }
+
+    private void unloadAll(final List<Entry<?>> victims) {
+        for (Entry<?> victim : victims) {
+            if (!victim.unloadable.unload()) {
+                // reloaded or already unloaded; queue it again if it holds
+                // an object so it can be selected later.
+                synchronized (this.lock) {
+                    if (victim.counted != null && !victim.isQueued && victim.unloadable.managerEntry == victim) {
+                        victim.requeue();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Bookkeeping for a single managed ConcurrentUnloadable.
+     *
+     * @param <T> the type of object held by the ConcurrentUnloadable.
+     */
+    static final class Entry<T> {
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicLongFieldUpdater<Entry> LAST_ACCESS
+                = AtomicLongFieldUpdater.newUpdater(Entry.class, "lastAccess");
+
+        private final UnloadableManager manager;
+        private final ConcurrentUnloadable<T> unloadable;
+        private final ToLongFunction<? super T> weigher;
+        private long weight = 0L;
+        // the object whose weight is counted; loads and unloads may report
+        // out of order, so only a report for this object changes it.
+        private Object counted = null;
+        private boolean isQueued = false;
+        private long queuedAccess = 0L;
+        private volatile long lastAccess = 0L;
+
+        private Entry(final UnloadableManager manager, final ConcurrentUnloadable<T> unloadable, final ToLongFunction<? super T> weigher) {
+            this.manager = manager;
+            this.unloadable = unloadable;
+            this.weigher = weigher;
+        }
+
+        void touch() {
+            final UnloadableManager manager = this.manager;
+            final long now = manager.clock;
+
+            // the most recently used entry already holds the newest tick; skip
+            // the stores so that hot objects do not keep dirtying the cache
+            // lines.
+            if (this.lastAccess != now) {
+                final long tick = now + 1L;
+
+                LAST_ACCESS.lazySet(this, tick);
+                CLOCK.lazySet(manager, tick);
+            }
+        }
+
+        private void requeue() {
+            this.queuedAccess = this.lastAccess;
+            this.isQueued = true;
+            this.manager.lru.offer(this);
+        }
+
+        void loaded(final T value) {
+            final long newWeight = this.weigher.applyAsLong(value);
+            final List<Entry<?>> victims;
+
+            synchronized (this.manager.lock) {
+                // an unload that won the race against this call has already
+                // been accounted for.
+                if (this.unloadable.managerEntry != this || !this.unloadable.isHolding(value)) {
+                    return;
+                }
+
+                if (this.counted != null) {
+                    this.manager.totalWeight -= this.weight;
+                }
+
+                this.weight = newWeight;
+                this.counted = value;
+                this.manager.totalWeight += newWeight;
+                this.lastAccess = ++this.manager.clock;
+
+                if (!this.isQueued) {
+                    this.requeue();
+                }
+
+                victims = this.manager.selectVictims(this.manager.maximumWeight, this);
+            }
+
+            this.manager.unloadAll(victims);
+        }
+
+        void unloaded(final T value) {
+            synchronized (this.manager.lock) {
+                if (this.counted == value && this.unloadable.managerEntry == this) {
+                    this.manager.totalWeight -= this.weight;
+                    this.counted = null;
+                }
+            }
+        }
+    }
+}
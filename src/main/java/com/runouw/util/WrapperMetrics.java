@@ -0,0 +1,157 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the lifecycle of wrapper objects.
+ * Metrics are opt-in: a wrapper only records into a WrapperMetrics that was
+ * given to it with setMetrics, and a wrapper without one only pays for a null
+ * check. One WrapperMetrics may be shared by any number of wrappers.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+public final class WrapperMetrics implements WrapperMetricsMXBean {
+
+    private final LongAdder initializations = new LongAdder();
+    private final LongAdder restores = new LongAdder();
+    private final LongAdder salvages = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder unloads = new LongAdder();
+    private final LongAdder replaces = new LongAdder();
+    private final LatencyHistogram initializationLatency = new LatencyHistogram();
+    private final LatencyHistogram restoreLatency = new LatencyHistogram();
+
+    void recordInitialization(final long nanos) {
+        this.initializations.increment();
+        this.initializationLatency.record(nanos);
+    }
+
+    void recordRestore(final long nanos) {
+        this.restores.increment();
+        this.restoreLatency.record(nanos);
+    }
+
+    void recordSalvage() {
+        this.salvages.increment();
+    }
+
+    void recordHit() {
+        this.hits.increment();
+    }
+
+    void recordUnload() {
+        this.unloads.increment();
+    }
+
+    void recordReplace() {
+        this.replaces.increment();
+    }
+
+    /**
+     * Retrieves the latency histogram of Lazy constructors.
+     *
+     * @return the initialization histogram.
+     * @since 26.10.16
+     */
+    public LatencyHistogram getInitializationLatency() {
+        return this.initializationLatency;
+    }
+
+    /**
+     * Retrieves the latency histogram of Unloadable restores.
+     *
+     * @return the restore histogram.
+     * @since 26.10.16
+     */
+    public LatencyHistogram getRestoreLatency() {
+        return this.restoreLatency;
+    }
+
+    @Override
+    public long getInitializations() {
+        return this.initializations.sum();
+    }
+
+    @Override
+    public long getRestores() {
+        return this.restores.sum();
+    }
+
+    @Override
+    public long getSalvages() {
+        return this.salvages.sum();
+    }
+
+    @Override
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    @Override
+    public long getUnloads() {
+        return this.unloads.sum();
+    }
+
+    @Override
+    public long getReplaces() {
+        return this.replaces.sum();
+    }
+
+    @Override
+    public double getMeanInitializationNanos() {
+        return this.initializationLatency.getMeanNanos();
+    }
+
+    @Override
+    public long getP99InitializationNanos() {
+        return this.initializationLatency.getPercentileNanos(99.0);
+    }
+
+    @Override
+    public double getMeanRestoreNanos() {
+        return this.restoreLatency.getMeanNanos();
+    }
+
+    @Override
+    public long getP99RestoreNanos() {
+        return this.restoreLatency.getPercentileNanos(99.0);
+    }
+
+    @Override
+    public void reset() {
+        this.initializations.reset();
+        this.restores.reset();
+        this.salvages.reset();
+        this.hits.reset();
+        this.unloads.reset();
+        this.replaces.reset();
+        this.initializationLatency.reset();
+        this.restoreLatency.reset();
+    }
+}
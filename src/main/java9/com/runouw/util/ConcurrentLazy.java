@@ -0,0 +1,351 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ConcurrentLazy is a thread-safe variant of Lazy. The constructor is called
+ * exactly once regardless of how many threads request the object at the same
+ * time. Once the object is initialized, get is a single acquire read.
+ * <p>
+ * A constructor that calls get or restore on the same object throws an
+ * IllegalStateException instead of constructing it recursively.
+ * <p>
+ * This is the Java 9 implementation. Initialization is published with
+ * release/acquire VarHandle accesses instead of a volatile field, and
+ * construction is guarded by a ReentrantLock instead of a monitor so that
+ * waiting virtual threads do not pin their carrier. The lock is only
+ * allocated once a thread has to construct the object.
+ *
+ * @author zmichaels
+ * @param <T> the type of the object.
+ * @since 26.10.16
+ */
+public class ConcurrentLazy<T> implements Deferrable<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentLazy.class);
+
+    private static final Object UNINITIALIZED = new Object();
+
+    private static final VarHandle INSTANCE;
+    private static final VarHandle LOCK;
+    private static final VarHandle FAILURES;
+
+    static {
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+            INSTANCE = lookup.findVarHandle(ConcurrentLazy.class, "instance", Object.class);
+            LOCK = lookup.findVarHandle(ConcurrentLazy.class, "lock", ReentrantLock.class);
+            FAILURES = lookup.findVarHandle(ConcurrentLazy.class, "failures", FailureCache.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    // allocated by the first thread that has to construct the object.
+    private ReentrantLock lock = null;
+    // UNINITIALIZED until the object is constructed. Written with release and
+    // read with acquire, so a restore publishes the new object safely too.
+    private Object instance = UNINITIALIZED;
+    // the thread running the constructor, used to detect a recursive get.
+    private volatile Thread loader = null;
+    private final Supplier<T> constructor;
+    private volatile FailureCache<T> failures = null;
+    private volatile Consumer<T> onInitialize = null;
+    private volatile WrapperMetrics metrics = null;
+
+    /**
+     * Sets a callback method for when the object is initialized. The callback
+     * is executed on the thread that constructed the object.
+     *
+     * @param callback the method to call when the object is initialized.
+     * @since 26.10.16
+     */
+    public void setOnInitialize(final Consumer<T> callback) {
+        this.onInitialize = callback;
+    }
+
+    /**
+     * Sets the metrics that initializations are recorded into. Null disables
+     * metrics.
+     *
+     * @param metrics the metrics to record into.
+     * @since 26.10.16
+     */
+    public void setMetrics(final WrapperMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets how long to wait before calling the constructor again after it
+     * throws. Until then, get throws an IllegalStateException caused by
+     * that exception, or returns the fallback value if one is set. Null
+     * retries on every call, which is the default.
+     *
+     * @param policy the backoff policy.
+     * @since 26.10.16
+     */
+    public void setBackoff(final BackoffPolicy policy) {
+        this.failures().setPolicy(policy);
+    }
+
+    /**
+     * Sets a supplier for the value returned while the constructor is
+     * failing. Fallback values are not stored; the object stays uninitialized
+     * until the constructor succeeds.
+     *
+     * @param fallback the fallback supplier. Null throws instead.
+     * @since 26.10.16
+     */
+    public void setFallback(final Supplier<T> fallback) {
+        this.failures().setFallback(fallback);
+    }
+
+    /**
+     * Sets a callback for when the constructor throws. The callback is
+     * executed on the thread that called the constructor.
+     *
+     * @param listener the callback.
+     * @since 26.10.16
+     */
+    public void setOnFailure(final FailureListener listener) {
+        this.failures().setListener(listener);
+    }
+
+    /**
+     * Retrieves the number of times the constructor failed since it last
+     * succeeded.
+     *
+     * @return the number of consecutive failures.
+     * @since 26.10.16
+     */
+    public int getConsecutiveFailures() {
+        final FailureCache<T> failures = this.failures;
+
+        return failures == null ? 0 : failures.getConsecutiveFailures();
+    }
+
+    /**
+     * Checks if calls are currently rejected because the constructor failed.
+     *
+     * @return true if the backoff window has not elapsed.
+     * @since 26.10.16
+     */
+    public boolean isBackingOff() {
+        final FailureCache<T> failures = this.failures;
+
+        return failures != null && failures.isBackingOff();
+    }
+
+    private FailureCache<T> failures() {
+        final FailureCache<T> failures = this.failures;
+
+        if (failures != null) {
+            return failures;
+        }
+
+        FAILURES.compareAndSet(this, (FailureCache<?>) null, new FailureCache<>());
+        return this.failures;
+    }
+
+    /**
+     * Constructs a new thread-safe Lazy initialization object.
+     *
+     * @param constructor the constructor for the object.
+     * @since 26.10.16
+     */
+    public ConcurrentLazy(final Supplier<T> constructor) {
+        this.constructor = Objects.requireNonNull(constructor);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get() {
+        final Object value = INSTANCE.getAcquire(this);
+
+        return value != UNINITIALIZED
+                ? (T) value
+                : this.initialize();
+    }
+
+    private ReentrantLock constructionLock() {
+        final ReentrantLock lock = (ReentrantLock) LOCK.getAcquire(this);
+
+        if (lock != null) {
+            return lock;
+        }
+
+        final ReentrantLock created = new ReentrantLock();
+        final ReentrantLock witness = (ReentrantLock) LOCK.compareAndExchange(this, (ReentrantLock) null, created);
+
+        return witness != null ? witness : created;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T initialize() {
+        this.checkRecursion();
+
+        final ReentrantLock lock = this.constructionLock();
+
+        lock.lock();
+
+        try {
+            final Object value = this.instance;
+
+            if (value != UNINITIALIZED) {
+                return (T) value;
+            }
+
+            return this.construct();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public T restore() {
+        this.checkRecursion();
+
+        final ReentrantLock lock = this.constructionLock();
+
+        lock.lock();
+
+        try {
+            if (this.instance != UNINITIALIZED) {
+                LOGGER.warn("Restore called when object has already been initialized!");
+            }
+
+            return this.construct();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkRecursion() {
+        // the lock is reentrant, so the constructing thread would otherwise
+        // construct the object again.
+        if (this.loader == Thread.currentThread()) {
+            throw new IllegalStateException("Recursive get from the constructor!");
+        }
+    }
+
+    private T construct() {
+        final FailureCache<T> failures = this.failures;
+        final FailureCache.State backoff = failures == null ? null : failures.backoff();
+        final T value;
+
+        if (failures == null) {
+            value = this.callConstructor();
+        } else if (backoff != null) {
+            return failures.reject(backoff);
+        } else {
+            try {
+                value = this.callConstructor();
+            } catch (RuntimeException ex) {
+                return failures.failed(ex);
+            }
+
+            failures.succeed();
+        }
+
+        INSTANCE.setRelease(this, value);
+
+        final Consumer<T> callback = this.onInitialize;
+
+        if (callback != null) {
+            callback.accept(value);
+        }
+
+        return value;
+    }
+
+    private T callConstructor() {
+        this.loader = Thread.currentThread();
+
+        try {
+            return this.measureConstructor();
+        } finally {
+            this.loader = null;
+        }
+    }
+
+    private T measureConstructor() {
+        final WrapperMetrics metrics = this.metrics;
+
+        if (metrics == null && !EventLog.ENABLED) {
+            return this.constructor.get();
+        }
+
+        final long start = System.nanoTime();
+        final T value = this.constructor.get();
+        final long elapsed = System.nanoTime() - start;
+
+        if (metrics != null) {
+            metrics.recordInitialization(elapsed);
+        }
+
+        if (EventLog.ENABLED) {
+            EventLog.record(EventLog.Type.INITIALIZE, this, elapsed);
+        }
+
+        return value;
+    }
+
+    /**
+     * Checks of the object has been initialized.
+     *
+     * @return true if it has been initialized.
+     * @since 26.10.16
+     */
+    public boolean isInitialized() {
+        return INSTANCE.getAcquire(this) != UNINITIALIZED;
+    }
+
+    /**
+     * Executes a method if the internal object has been initialized.
+     *
+     * @param isInitialized the method to execute if the object has been
+     * initialized.
+     * @since 26.10.16
+     */
+    @SuppressWarnings("unchecked")
+    public void ifInitialized(final Consumer<T> isInitialized) {
+        final Object value = INSTANCE.getAcquire(this);
+
+        if (value != UNINITIALIZED) {
+            isInitialized.accept((T) value);
+        }
+    }
+}
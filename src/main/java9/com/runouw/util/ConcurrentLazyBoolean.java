@@ -0,0 +1,329 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A thread-safe variant of LazyBoolean. The constructor is called exactly once
+ * regardless of how many threads request the value at the same time. The
+ * value is packed into the state word, so getAsBoolean is a single acquire
+ * read once the value is initialized.
+ * <p>
+ * A constructor that calls getAsBoolean on the same object throws an
+ * IllegalStateException instead of waiting for itself.
+ * <p>
+ * This is the Java 9 implementation. The state is read with acquire and
+ * written with release VarHandle accesses. Threads that wait for another
+ * thread to finish construction park on a stack of waiters instead of a
+ * monitor, so no lock is allocated per instance and waiting virtual threads
+ * do not pin their carrier.
+ *
+ * @author zmichaels
+ * @since 26.10.16
+ */
+public class ConcurrentLazyBoolean implements DeferrableBoolean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentLazyBoolean.class);
+
+    private static final int UNINITIALIZED = 0;
+    private static final int INITIALIZING = 1;
+    private static final int INITIALIZED_FALSE = 2;
+    private static final int INITIALIZED_TRUE = 3;
+
+    private static final VarHandle STATE;
+    private static final VarHandle WAITERS;
+    private static final VarHandle FAILURES;
+
+    static {
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+            STATE = lookup.findVarHandle(ConcurrentLazyBoolean.class, "state", int.class);
+            WAITERS = lookup.findVarHandle(ConcurrentLazyBoolean.class, "waiters", Waiter.class);
+            FAILURES = lookup.findVarHandle(ConcurrentLazyBoolean.class, "failures", FailureCache.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    // threads that wait for construction to finish.
+    private Waiter waiters = null;
+    // the thread running the constructor, used to detect a recursive get.
+    private volatile Thread loader = null;
+    private int state = UNINITIALIZED;
+    private final BooleanSupplier constructor;
+    private volatile FailureCache<Boolean> failures = null;
+    private volatile BooleanConsumer onInitialize = null;
+
+    /**
+     * Sets a callback method for when the value is initialized. The callback
+     * is executed on the thread that computed the value.
+     *
+     * @param callback the method to call when the value is initialized.
+     * @since 26.10.16
+     */
+    public void setOnInitialize(final BooleanConsumer callback) {
+        this.onInitialize = callback;
+    }
+
+    /**
+     * Sets how long to wait before calling the constructor again after it
+     * throws. Until then, getAsBoolean throws an IllegalStateException caused by
+     * that exception, or returns the fallback value if one is set. Null
+     * retries on every call, which is the default.
+     *
+     * @param policy the backoff policy.
+     * @since 26.10.16
+     */
+    public void setBackoff(final BackoffPolicy policy) {
+        this.failures().setPolicy(policy);
+    }
+
+    /**
+     * Sets a supplier for the value returned while the constructor is
+     * failing. Fallback values are not stored; the value stays uninitialized
+     * until the constructor succeeds.
+     *
+     * @param fallback the fallback supplier. Null throws instead.
+     * @since 26.10.16
+     */
+    public void setFallback(final BooleanSupplier fallback) {
+        this.failures().setFallback(fallback == null ? null : fallback::getAsBoolean);
+    }
+
+    /**
+     * Sets a callback for when the constructor throws. The callback is
+     * executed on the thread that called the constructor.
+     *
+     * @param listener the callback.
+     * @since 26.10.16
+     */
+    public void setOnFailure(final FailureListener listener) {
+        this.failures().setListener(listener);
+    }
+
+    /**
+     * Retrieves the number of times the constructor failed since it last
+     * succeeded.
+     *
+     * @return the number of consecutive failures.
+     * @since 26.10.16
+     */
+    public int getConsecutiveFailures() {
+        final FailureCache<Boolean> failures = this.failures;
+
+        return failures == null ? 0 : failures.getConsecutiveFailures();
+    }
+
+    /**
+     * Checks if calls are currently rejected because the constructor failed.
+     *
+     * @return true if the backoff window has not elapsed.
+     * @since 26.10.16
+     */
+    public boolean isBackingOff() {
+        final FailureCache<Boolean> failures = this.failures;
+
+        return failures != null && failures.isBackingOff();
+    }
+
+    private FailureCache<Boolean> failures() {
+        final FailureCache<Boolean> failures = this.failures;
+
+        if (failures != null) {
+            return failures;
+        }
+
+        FAILURES.compareAndSet(this, (FailureCache<?>) null, new FailureCache<>());
+        return this.failures;
+    }
+
+    /**
+     * Constructs a new thread-safe lazily initialized boolean.
+     *
+     * @param constructor the function that computes the value.
+     * @since 26.10.16
+     */
+    public ConcurrentLazyBoolean(final BooleanSupplier constructor) {
+        this.constructor = Objects.requireNonNull(constructor);
+    }
+
+    /**
+     * Checks if the value has been initialized.
+     *
+     * @return true if it has been initialized.
+     * @since 26.10.16
+     */
+    public boolean isInitialized() {
+        return (int) STATE.getAcquire(this) >= INITIALIZED_FALSE;
+    }
+
+    @Override
+    public boolean getAsBoolean() {
+        final int current = (int) STATE.getAcquire(this);
+
+        return current >= INITIALIZED_FALSE
+                ? current == INITIALIZED_TRUE
+                : this.initialize();
+    }
+
+    private boolean initialize() {
+        while (true) {
+            final int current = (int) STATE.getAcquire(this);
+
+            if (current >= INITIALIZED_FALSE) {
+                return current == INITIALIZED_TRUE;
+            } else if (current == UNINITIALIZED) {
+                if (STATE.compareAndSet(this, UNINITIALIZED, INITIALIZING)) {
+                    return this.construct(UNINITIALIZED);
+                }
+            } else {
+                this.awaitConstruction();
+            }
+        }
+    }
+
+    @Override
+    public boolean restore() {
+        while (true) {
+            final int current = (int) STATE.getAcquire(this);
+
+            if (current == INITIALIZING) {
+                this.awaitConstruction();
+            } else if (STATE.compareAndSet(this, current, INITIALIZING)) {
+                if (current >= INITIALIZED_FALSE) {
+                    LOGGER.warn("Restore called when object has already been initialized!");
+                }
+
+                return this.construct(current);
+            }
+        }
+    }
+
+    private boolean construct(final int previousState) {
+        this.loader = Thread.currentThread();
+
+        final FailureCache<Boolean> failures = this.failures;
+        final FailureCache.State backoff = failures == null ? null : failures.backoff();
+
+        if (backoff != null) {
+            this.publish(previousState);
+            return failures.reject(backoff);
+        }
+
+        final boolean value;
+
+        try {
+            value = this.constructor.getAsBoolean();
+        } catch (RuntimeException ex) {
+            this.publish(previousState);
+
+            if (failures == null) {
+                throw ex;
+            }
+
+            return failures.failed(ex);
+        } catch (Error ex) {
+            this.publish(previousState);
+            throw ex;
+        }
+
+        if (failures != null) {
+            failures.succeed();
+        }
+
+        this.publish(value ? INITIALIZED_TRUE : INITIALIZED_FALSE);
+
+        final BooleanConsumer callback = this.onInitialize;
+
+        if (callback != null) {
+            callback.accept(value);
+        }
+
+        return value;
+    }
+
+    private void publish(final int newState) {
+        this.loader = null;
+        STATE.setVolatile(this, newState);
+
+        for (Waiter waiter = (Waiter) WAITERS.getAndSet(this, (Waiter) null); waiter != null; waiter = waiter.next) {
+            LockSupport.unpark(waiter.thread);
+        }
+    }
+
+    private void awaitConstruction() {
+        if (this.loader == Thread.currentThread()) {
+            throw new IllegalStateException("Recursive get from the constructor!");
+        }
+
+        final Waiter waiter = new Waiter();
+
+        do {
+            waiter.next = (Waiter) WAITERS.getVolatile(this);
+        } while (!WAITERS.compareAndSet(this, waiter.next, waiter));
+
+        // the push is a full fence, so either publish sees the waiter or the
+        // state read below sees the published state.
+        boolean isInterrupted = false;
+
+        while ((int) STATE.getVolatile(this) == INITIALIZING) {
+            LockSupport.park(this);
+            isInterrupted |= Thread.interrupted();
+        }
+
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Executes a method if the value has been initialized.
+     *
+     * @param isInit the method to execute if the value has been initialized.
+     * @since 26.10.16
+     */
+    public void ifInitialized(final BooleanConsumer isInit) {
+        final int current = (int) STATE.getAcquire(this);
+
+        if (current >= INITIALIZED_FALSE) {
+            isInit.accept(current == INITIALIZED_TRUE);
+        }
+    }
+
+    private static final class Waiter {
+
+        private final Thread thread = Thread.currentThread();
+        private Waiter next;
+    }
+}
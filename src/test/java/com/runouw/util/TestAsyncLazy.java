@@ -0,0 +1,152 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestAsyncLazy {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        this.executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void testConstructsOnce() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final AsyncLazy<Object> lazy = new AsyncLazy<>(() -> {
+            calls.incrementAndGet();
+            Concurrently.pause(20);
+            return new Object();
+        }, this.executor);
+
+        final List<Object> results = Concurrently.run(16, lazy::get);
+
+        Assert.assertEquals(1, calls.get());
+
+        for (Object result : results) {
+            Assert.assertSame(results.get(0), result);
+        }
+    }
+
+    @Test
+    public void testFutureIsDependentCopy() {
+        final AsyncLazy<String> lazy = new AsyncLazy<>(() -> {
+            Concurrently.pause(50);
+            return "value";
+        }, this.executor);
+
+        final CompletableFuture<String> future = lazy.future();
+
+        future.complete("forged");
+
+        Assert.assertEquals("value", lazy.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testCallbackMayCallGet() throws Exception {
+        final AtomicReference<String> seen = new AtomicReference<>();
+        final AsyncLazy<String> lazy = new AsyncLazy<>(() -> "value", this.executor);
+
+        lazy.setOnInitialize(value -> seen.set(lazy.get()));
+        lazy.get();
+
+        this.executor.shutdown();
+        this.executor.awaitTermination(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals("value", seen.get());
+    }
+
+    @Test
+    public void testFailureIsCached() {
+        final AtomicInteger calls = new AtomicInteger();
+        final AsyncLazy<String> lazy = new AsyncLazy<>(() -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("first");
+            }
+
+            return "second";
+        }, this.executor);
+
+        try {
+            lazy.get();
+            Assert.fail("Expected the constructor to fail!");
+        } catch (CompletionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals("fallback", lazy.getNow("fallback"));
+        }
+
+        Assert.assertEquals(1, calls.get());
+        Assert.assertEquals("second", lazy.restore());
+        Assert.assertEquals("second", lazy.getNow("fallback"));
+    }
+
+    @Test
+    public void testRestoreKeepsPreviousOnFailure() {
+        final AtomicInteger calls = new AtomicInteger();
+        final AsyncLazy<Integer> lazy = new AsyncLazy<>(() -> {
+            if (calls.incrementAndGet() == 2) {
+                throw new IllegalStateException("second");
+            }
+
+            return calls.get();
+        }, this.executor);
+
+        Assert.assertEquals(1, (int) lazy.get());
+
+        try {
+            lazy.restore();
+            Assert.fail("Expected the constructor to fail!");
+        } catch (CompletionException ex) {
+            Assert.assertEquals(1, (int) lazy.get());
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestBackoff {
+
+    private static final Executor DIRECT = Runnable::run;
+
+    @Test
+    public void testRejectsWithinWindow() {
+        final AtomicInteger calls = new AtomicInteger();
+        final IllegalArgumentException failure = new IllegalArgumentException("down");
+        final ConcurrentLazy<String> lazy = new ConcurrentLazy<>(() -> {
+            calls.incrementAndGet();
+            throw failure;
+        });
+
+        lazy.setBackoff(BackoffPolicy.fixed(1, TimeUnit.HOURS));
+
+        try {
+            lazy.get();
+            Assert.fail("Expected the constructor to fail!");
+        } catch (IllegalArgumentException ex) {
+            Assert.assertSame(failure, ex);
+        }
+
+        final IllegalStateException first = rejected(lazy::get);
+        final IllegalStateException second = rejected(lazy::get);
+
+        Assert.assertSame(failure, first.getCause());
+        Assert.assertSame(failure, second.getCause());
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(1, calls.get());
+        Assert.assertEquals(1, lazy.getConsecutiveFailures());
+        Assert.assertTrue(lazy.isBackingOff());
+    }
+
+    @Test
+    public void testRetriesAfterWindow() {
+        final AtomicInteger calls = new AtomicInteger();
+        final ConcurrentLazyInt lazy = new ConcurrentLazyInt(() -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("first");
+            }
+
+            return 42;
+        });
+
+        lazy.setBackoff(BackoffPolicy.fixed(50, TimeUnit.MILLISECONDS));
+
+        try {
+            lazy.getAsInt();
+            Assert.fail("Expected the constructor to fail!");
+        } catch (IllegalStateException ex) {
+            Assert.assertEquals("first", ex.getMessage());
+        }
+
+        rejected(lazy::getAsInt);
+        Assert.assertEquals(1, calls.get());
+
+        Concurrently.pause(100);
+
+        Assert.assertEquals(42, lazy.getAsInt());
+        Assert.assertEquals(2, calls.get());
+        Assert.assertEquals(0, lazy.getConsecutiveFailures());
+        Assert.assertFalse(lazy.isBackingOff());
+    }
+
+    @Test
+    public void testFallbackIsNotStored() {
+        final AtomicInteger calls = new AtomicInteger();
+        final ConcurrentLazy<String> lazy = new ConcurrentLazy<>(() -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("first");
+            }
+
+            return "value";
+        });
+
+        lazy.setFallback(() -> "fallback");
+
+        Assert.assertEquals("fallback", lazy.get());
+        Assert.assertFalse(lazy.isInitialized());
+        Assert.assertEquals("value", lazy.get());
+        Assert.assertTrue(lazy.isInitialized());
+    }
+
+    @Test
+    public void testPrimitiveFallbackWithinWindow() {
+        final AtomicInteger calls = new AtomicInteger();
+        final ConcurrentLazyDouble lazy = new ConcurrentLazyDouble(() -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("down");
+        });
+
+        lazy.setBackoff(BackoffPolicy.fixed(1, TimeUnit.HOURS));
+        lazy.setFallback(() -> -1.0);
+
+        Assert.assertEquals(-1.0, lazy.getAsDouble(), 0.0);
+        Assert.assertEquals(-1.0, lazy.getAsDouble(), 0.0);
+        Assert.assertEquals(1, calls.get());
+        Assert.assertFalse(lazy.isInitialized());
+    }
+
+    @Test
+    public void testAsyncLazyRetriesAfterWindow() {
+        final AtomicInteger calls = new AtomicInteger();
+        final AsyncLazy<String> lazy = new AsyncLazy<>(() -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("first");
+            }
+
+            return "value";
+        }, DIRECT);
+
+        lazy.setBackoff(BackoffPolicy.fixed(50, TimeUnit.MILLISECONDS));
+
+        try {
+            lazy.get();
+            Assert.fail("Expected the constructor to fail!");
+        } catch (CompletionException ex) {
+            Assert.assertEquals("first", ex.getCause().getMessage());
+        }
+
+        Assert.assertEquals("first", rejected(lazy::get).getCause().getMessage());
+        Assert.assertEquals(1, calls.get());
+
+        Concurrently.pause(100);
+
+        Assert.assertEquals("value", lazy.get());
+        Assert.assertEquals(2, calls.get());
+        Assert.assertTrue(lazy.isInitialized());
+    }
+
+    @Test
+    public void testExpiringLazyFallback() {
+        final AtomicInteger calls = new AtomicInteger();
+        final ExpiringLazy<String> lazy = new ExpiringLazy<>(() -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("down");
+        }, 1, TimeUnit.HOURS, DIRECT);
+
+        lazy.setBackoff(BackoffPolicy.fixed(1, TimeUnit.HOURS));
+        lazy.setFallback(() -> "fallback");
+
+        Assert.assertEquals("fallback", lazy.get());
+        Assert.assertEquals("fallback", lazy.get());
+        Assert.assertEquals(1, calls.get());
+        Assert.assertFalse(lazy.isFresh());
+    }
+
+    @Test
+    public void testUnloadableFallbackWithinWindow() {
+        final AtomicInteger restores = new AtomicInteger();
+        final ConcurrentUnloadable<String> unloadable = ConcurrentUnloadable.eagerUnload(null, () -> {
+            restores.incrementAndGet();
+            throw new IllegalStateException("down");
+        });
+
+        unloadable.setBackoff(BackoffPolicy.fixed(1, TimeUnit.HOURS));
+
+        try {
+            unloadable.get();
+            Assert.fail("Expected the restore function to fail!");
+        } catch (IllegalStateException ex) {
+            Assert.assertEquals("down", ex.getMessage());
+        }
+
+        Assert.assertEquals("down", rejected(unloadable::get).getCause().getMessage());
+
+        unloadable.setFallback(() -> "fallback");
+
+        Assert.assertEquals("fallback", unloadable.get());
+        Assert.assertFalse(unloadable.isPresent());
+        Assert.assertEquals(1, restores.get());
+    }
+
+    @Test
+    public void testConcurrentFailuresAreCounted() throws Exception {
+        final FailureCache<String> failures = new FailureCache<>();
+        final IllegalStateException failure = new IllegalStateException("down");
+
+        failures.setPolicy(BackoffPolicy.fixed(1, TimeUnit.HOURS));
+
+        Concurrently.run(8, () -> {
+            for (int i = 0; i < 1000; i++) {
+                failures.fail(failure);
+            }
+
+            return null;
+        });
+
+        Assert.assertEquals(8000, failures.getConsecutiveFailures());
+        Assert.assertTrue(failures.isBackingOff());
+
+        failures.succeed();
+
+        Assert.assertEquals(0, failures.getConsecutiveFailures());
+        Assert.assertFalse(failures.isBackingOff());
+    }
+
+    @Test
+    public void testRejectionUsesCheckedState() {
+        final FailureCache<String> failures = new FailureCache<>();
+        final IllegalArgumentException failure = new IllegalArgumentException("down");
+
+        failures.setPolicy(BackoffPolicy.fixed(1, TimeUnit.HOURS));
+        failures.fail(failure);
+
+        final FailureCache.State backoff = failures.backoff();
+
+        Assert.assertNotNull(backoff);
+
+        // a call that succeeds after the check does not change the rejection.
+        failures.succeed();
+
+        final IllegalStateException rejection = rejected(() -> failures.reject(backoff));
+
+        Assert.assertSame(failure, rejection.getCause());
+        Assert.assertTrue(rejection.getMessage().contains(" 1 "));
+        Assert.assertNull(failures.backoff());
+    }
+
+    private static IllegalStateException rejected(final Runnable call) {
+        try {
+            call.run();
+        } catch (IllegalStateException ex) {
+            return ex;
+        }
+
+        Assert.fail("Expected the call to be rejected!");
+        return null;
+    }
+}
@@ -0,0 +1,129 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestConcurrentLazy {
+
+    @Test
+    public void testConstructsOnce() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final ConcurrentLazy<Object> lazy = Lazy.concurrent(() -> {
+            calls.incrementAndGet();
+            Concurrently.pause(20);
+            return new Object();
+        });
+
+        final List<Object> results = Concurrently.run(16, lazy::get);
+
+        Assert.assertEquals(1, calls.get());
+        Assert.assertTrue(lazy.isInitialized());
+
+        for (Object result : results) {
+            Assert.assertSame(results.get(0), result);
+        }
+    }
+
+    @Test
+    public void testRestoreConstructsAgain() {
+        final AtomicInteger calls = new AtomicInteger();
+        final ConcurrentLazy<Integer> lazy = new ConcurrentLazy<>(calls::incrementAndGet);
+
+        Assert.assertEquals(1, (int) lazy.get());
+        Assert.assertEquals(2, (int) lazy.restore());
+        Assert.assertEquals(2, (int) lazy.get());
+    }
+
+    @Test
+    public void testCallbackRunsOnce() throws Exception {
+        final AtomicInteger callbacks = new AtomicInteger();
+        final ConcurrentLazy<String> lazy = new ConcurrentLazy<>(() -> "value");
+
+        lazy.setOnInitialize(value -> callbacks.incrementAndGet());
+        Concurrently.run(8, lazy::get);
+
+        Assert.assertEquals(1, callbacks.get());
+    }
+
+    @Test
+    public void testFailureAllowsRetry() {
+        final AtomicInteger calls = new AtomicInteger();
+        final ConcurrentLazy<String> lazy = new ConcurrentLazy<>(() -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("first");
+            }
+
+            return "second";
+        });
+
+        try {
+            lazy.get();
+            Assert.fail("Expected the constructor to fail!");
+        } catch (IllegalStateException ex) {
+            Assert.assertFalse(lazy.isInitialized());
+        }
+
+        Assert.assertEquals("second", lazy.get());
+    }
+
+    @Test(timeout = 5000)
+    public void testRecursiveGetFails() {
+        final AtomicReference<ConcurrentLazy<Object>> ref = new AtomicReference<>();
+        final ConcurrentLazy<Object> lazy = new ConcurrentLazy<>(() -> ref.get().get());
+
+        ref.set(lazy);
+
+        try {
+            lazy.get();
+            Assert.fail("Expected the recursive get to fail!");
+        } catch (IllegalStateException ex) {
+            Assert.assertFalse(lazy.isInitialized());
+        }
+    }
+
+    @Test
+    public void testNullValueIsInitialized() {
+        final AtomicInteger calls = new AtomicInteger();
+        final ConcurrentLazy<Object> lazy = new ConcurrentLazy<>(() -> {
+            calls.incrementAndGet();
+            return null;
+        });
+
+        Assert.assertNull(lazy.get());
+        Assert.assertNull(lazy.get());
+        Assert.assertTrue(lazy.isInitialized());
+        Assert.assertEquals(1, calls.get());
+    }
+}
@@ -0,0 +1,171 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestConcurrentLazyPrimitives {
+
+    private static final int THREADS = 16;
+
+    @Test
+    public void testIntConstructsOnce() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final ConcurrentLazyInt lazy = new ConcurrentLazyInt(() -> {
+            Concurrently.pause(20);
+            return calls.incrementAndGet();
+        });
+
+        final List<Integer> results = Concurrently.run(THREADS, lazy::getAsInt);
+
+        Assert.assertEquals(1, calls.get());
+
+        for (int result : results) {
+            Assert.assertEquals(1, result);
+        }
+    }
+
+    @Test
+    public void testLongConstructsOnce() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final ConcurrentLazyLong lazy = new ConcurrentLazyLong(() -> {
+            Concurrently.pause(20);
+            return Long.MAX_VALUE - calls.incrementAndGet();
+        });
+
+        final List<Long> results = Concurrently.run(THREADS, lazy::getAsLong);
+
+        Assert.assertEquals(1, calls.get());
+
+        for (long result : results) {
+            Assert.assertEquals(Long.MAX_VALUE - 1, result);
+        }
+    }
+
+    @Test
+    public void testDoubleConstructsOnce() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final ConcurrentLazyDouble lazy = new ConcurrentLazyDouble(() -> {
+            Concurrently.pause(20);
+            return calls.incrementAndGet() * 0.5;
+        });
+
+        final List<Double> results = Concurrently.run(THREADS, lazy::getAsDouble);
+
+        Assert.assertEquals(1, calls.get());
+
+        for (double result : results) {
+            Assert.assertEquals(0.5, result, 0.0);
+        }
+    }
+
+    @Test
+    public void testBooleanConstructsOnce() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final ConcurrentLazyBoolean lazy = new ConcurrentLazyBoolean(() -> {
+            Concurrently.pause(20);
+            return calls.incrementAndGet() == 1;
+        });
+
+        final List<Boolean> results = Concurrently.run(THREADS, lazy::getAsBoolean);
+
+        Assert.assertEquals(1, calls.get());
+
+        for (boolean result : results) {
+            Assert.assertTrue(result);
+        }
+    }
+
+    @Test
+    public void testRestoreConstructsAgain() {
+        final AtomicInteger calls = new AtomicInteger();
+        final ConcurrentLazyInt lazy = new ConcurrentLazyInt(calls::incrementAndGet);
+
+        Assert.assertFalse(lazy.isInitialized());
+        Assert.assertEquals(1, lazy.getAsInt());
+        Assert.assertEquals(2, lazy.restore());
+        Assert.assertEquals(2, lazy.getAsInt());
+    }
+
+    @Test
+    public void testFailureAllowsRetry() {
+        final AtomicInteger calls = new AtomicInteger();
+        final ConcurrentLazyLong lazy = new ConcurrentLazyLong(() -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("first");
+            }
+
+            return 42L;
+        });
+
+        try {
+            lazy.getAsLong();
+            Assert.fail("Expected the constructor to fail!");
+        } catch (IllegalStateException ex) {
+            Assert.assertFalse(lazy.isInitialized());
+        }
+
+        Assert.assertEquals(42L, lazy.getAsLong());
+    }
+
+    private static void assertRecursiveGetFails(final Runnable get) {
+        try {
+            get.run();
+            Assert.fail("Expected the recursive get to fail!");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testRecursiveGetFails() {
+        final AtomicReference<ConcurrentLazyInt> lazyInt = new AtomicReference<>();
+        final AtomicReference<ConcurrentLazyLong> lazyLong = new AtomicReference<>();
+        final AtomicReference<ConcurrentLazyDouble> lazyDouble = new AtomicReference<>();
+        final AtomicReference<ConcurrentLazyBoolean> lazyBoolean = new AtomicReference<>();
+
+        lazyInt.set(new ConcurrentLazyInt(() -> lazyInt.get().getAsInt()));
+        lazyLong.set(new ConcurrentLazyLong(() -> lazyLong.get().getAsLong()));
+        lazyDouble.set(new ConcurrentLazyDouble(() -> lazyDouble.get().getAsDouble()));
+        lazyBoolean.set(new ConcurrentLazyBoolean(() -> lazyBoolean.get().getAsBoolean()));
+
+        assertRecursiveGetFails(lazyInt.get()::getAsInt);
+        assertRecursiveGetFails(lazyLong.get()::getAsLong);
+        assertRecursiveGetFails(lazyDouble.get()::getAsDouble);
+        assertRecursiveGetFails(lazyBoolean.get()::getAsBoolean);
+
+        Assert.assertFalse(lazyInt.get().isInitialized());
+        Assert.assertFalse(lazyBoolean.get().isInitialized());
+    }
+}
@@ -0,0 +1,98 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestConcurrentReplaceable {
+
+    @Test
+    public void testDefaultAndReplace() {
+        final ConcurrentReplaceable<String> replaceable = new ConcurrentReplaceable<>("default");
+
+        Assert.assertEquals("default", replaceable.get());
+        Assert.assertTrue(replaceable.isDefault());
+        Assert.assertFalse(replaceable.isReplaced());
+
+        replaceable.set("other");
+        Assert.assertEquals("other", replaceable.get());
+        Assert.assertEquals(1L, replaceable.getVersion());
+
+        Assert.assertEquals("other", replaceable.getAndSet(null));
+        Assert.assertEquals("default", replaceable.get());
+        Assert.assertEquals(2L, replaceable.getVersion());
+    }
+
+    @Test
+    public void testCompareAndSetByIdentity() {
+        final ConcurrentReplaceable<String> replaceable = ConcurrentReplaceable.nullDefault();
+        final String first = new String("first");
+
+        Assert.assertTrue(replaceable.compareAndSet(null, first));
+        Assert.assertFalse(replaceable.compareAndSet(new String("first"), "second"));
+        Assert.assertTrue(replaceable.compareAndSet(first, "second"));
+        Assert.assertEquals("second", replaceable.get());
+    }
+
+    @Test
+    public void testCompareAndSetByVersion() {
+        final ConcurrentReplaceable<String> replaceable = new ConcurrentReplaceable<>("default");
+        final long[] version = new long[1];
+
+        Assert.assertEquals("default", replaceable.get(version));
+        replaceable.set("other");
+
+        Assert.assertFalse(replaceable.compareAndSet(version[0], "stale"));
+        Assert.assertTrue(replaceable.compareAndSet(replaceable.getVersion(), "fresh"));
+        Assert.assertEquals("fresh", replaceable.get());
+    }
+
+    @Test
+    public void testConcurrentUpdatesAreNotLost() throws Exception {
+        final ConcurrentReplaceable<Integer> replaceable = new ConcurrentReplaceable<>(0);
+        final AtomicInteger callbacks = new AtomicInteger();
+
+        replaceable.setOnReplace(value -> callbacks.incrementAndGet());
+
+        Concurrently.run(8, () -> {
+            for (int i = 0; i < 1000; i++) {
+                replaceable.updateAndGet(value -> value + 1);
+            }
+
+            return null;
+        });
+
+        Assert.assertEquals(8000, (int) replaceable.get());
+        Assert.assertEquals(8000L, replaceable.getVersion());
+        Assert.assertEquals(8000, callbacks.get());
+    }
+}
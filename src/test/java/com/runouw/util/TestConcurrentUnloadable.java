@@ -0,0 +1,177 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestConcurrentUnloadable {
+
+    private static boolean awaitUnloaded(final ConcurrentUnloadable<?> unloadable, final long millis) {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+
+        while (unloadable.isPresent()) {
+            if (System.nanoTime() - deadline > 0L) {
+                return false;
+            }
+
+            Concurrently.pause(5);
+        }
+
+        return true;
+    }
+
+    @Test
+    public void testIdleTimeoutUnloads() {
+        final AtomicInteger restores = new AtomicInteger();
+        final AtomicInteger unloads = new AtomicInteger();
+        final ConcurrentUnloadable<Object> unloadable = ConcurrentUnloadable.eagerUnload(null, () -> {
+            restores.incrementAndGet();
+            return new Object();
+        });
+
+        unloadable.setOnUnload(value -> unloads.incrementAndGet());
+        unloadable.setIdleTimeout(50L, TimeUnit.MILLISECONDS);
+        unloadable.get();
+
+        final long start = System.nanoTime();
+
+        assertTrue(awaitUnloaded(unloadable, 5000L));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40L));
+        assertEquals(1, unloads.get());
+
+        // a reload arms the timer again.
+        unloadable.get();
+
+        assertTrue(awaitUnloaded(unloadable, 5000L));
+        assertEquals(2, restores.get());
+        assertEquals(2, unloads.get());
+    }
+
+    @Test
+    public void testAccessKeepsLoaded() {
+        final ConcurrentUnloadable<Object> unloadable = ConcurrentUnloadable.eagerUnload(null, Object::new);
+
+        unloadable.setIdleTimeout(150L, TimeUnit.MILLISECONDS);
+        unloadable.get();
+
+        for (int i = 0; i < 30; i++) {
+            Concurrently.pause(10);
+            assertTrue(unloadable.isPresent());
+            unloadable.get();
+        }
+
+        assertTrue(awaitUnloaded(unloadable, 5000L));
+    }
+
+    @Test
+    public void testLoadAfterIdleWheel() {
+        final ConcurrentUnloadable<Object> unloadable = ConcurrentUnloadable.eagerUnload(null, Object::new);
+
+        unloadable.setIdleTimeout(100L, TimeUnit.MILLISECONDS);
+        unloadable.get();
+
+        assertTrue(awaitUnloaded(unloadable, 5000L));
+
+        // the wheel has no timers now; a load after more than the timeout must
+        // not be stamped with the tick the wheel stopped at, which would
+        // unload it on the next tick.
+        Concurrently.pause(150);
+        unloadable.get();
+        Concurrently.pause(30);
+
+        assertTrue(unloadable.isPresent());
+    }
+
+    @Test
+    public void testDisableIdleTimeout() {
+        final ConcurrentUnloadable<Object> unloadable = ConcurrentUnloadable.eagerUnload(new Object(), Object::new);
+
+        unloadable.setIdleTimeout(20L, TimeUnit.MILLISECONDS);
+        unloadable.setIdleTimeout(0L, TimeUnit.MILLISECONDS);
+        Concurrently.pause(150);
+
+        assertTrue(unloadable.isPresent());
+    }
+
+    @Test
+    public void testRestoresOnce() throws Exception {
+        final AtomicInteger restores = new AtomicInteger();
+        final ConcurrentUnloadable<Object> unloadable = ConcurrentUnloadable.eagerUnload(null, () -> {
+            restores.incrementAndGet();
+            Concurrently.pause(50);
+            return new Object();
+        });
+
+        final List<Object> results = Concurrently.run(16, unloadable::get);
+
+        assertEquals(1, restores.get());
+
+        for (Object result : results) {
+            assertSame(results.get(0), result);
+        }
+    }
+
+    @Test
+    public void testRecursiveGetThrows() {
+        final ConcurrentUnloadable<?>[] self = new ConcurrentUnloadable<?>[1];
+        final ConcurrentUnloadable<Object> unloadable = ConcurrentUnloadable.eagerUnload(null, () -> self[0].get());
+
+        self[0] = unloadable;
+
+        try {
+            unloadable.get();
+            fail("Expected the recursive get to throw!");
+        } catch (IllegalStateException ex) {
+            assertFalse(unloadable.isLoading());
+            assertFalse(unloadable.isPresent());
+        }
+    }
+
+    @Test
+    public void testReloadCallbackRunsBeforePublish() {
+        final ConcurrentUnloadable<Object> unloadable = ConcurrentUnloadable.eagerUnload(null, Object::new);
+        final AtomicInteger seenPresent = new AtomicInteger();
+
+        unloadable.setOnReload(value -> {
+            if (unloadable.isPresent()) {
+                seenPresent.incrementAndGet();
+            }
+        });
+
+        unloadable.get();
+
+        assertTrue(unloadable.isPresent());
+        assertEquals(0, seenPresent.get());
+    }
+}
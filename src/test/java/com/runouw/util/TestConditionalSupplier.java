@@ -0,0 +1,84 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestConditionalSupplier {
+
+    private static final List<BiFunction<ConditionalSupplier<Integer, String>, Integer, ConditionalSupplier<Integer, String>>> TESTS = Arrays.asList(
+            ConditionalSupplier::Equals,
+            ConditionalSupplier::NotEquals,
+            ConditionalSupplier::GreaterThan,
+            ConditionalSupplier::GreaterThanOrEquals,
+            ConditionalSupplier::LessThan,
+            ConditionalSupplier::LessThanOrEquals);
+
+    @Test
+    public void testCompiledMatchesInterpreted() {
+        final AtomicInteger input = new AtomicInteger();
+        final Supplier<Integer> inputSupplier = input::get;
+
+        for (BiFunction<ConditionalSupplier<Integer, String>, Integer, ConditionalSupplier<Integer, String>> test : TESTS) {
+            final ConditionalSupplier<Integer, String> chain = test
+                    .apply(ConditionalSupplier.If(inputSupplier), 5)
+                    .Then("then")
+                    .ElseGet(() -> "else");
+            final Supplier<String> compiled = chain.compile();
+
+            for (int i = 0; i < 10; i++) {
+                input.set(i);
+                Assert.assertEquals(chain.get(), compiled.get());
+            }
+        }
+    }
+
+    @Test
+    public void testConstantsAreFolded() {
+        final AtomicInteger calls = new AtomicInteger();
+        final Supplier<String> compiled = ConditionalSupplier.<Integer, String> If((Integer) 11)
+                .GreaterThan(10)
+                .ThenGet(Singletons.of("then"))
+                .ElseGet(() -> {
+                    calls.incrementAndGet();
+                    return "else";
+                })
+                .compile();
+
+        Assert.assertEquals("then", compiled.get());
+        Assert.assertEquals(0, calls.get());
+    }
+}
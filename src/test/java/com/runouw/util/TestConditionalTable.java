@@ -0,0 +1,98 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestConditionalTable {
+
+    @Test
+    public void testMatchesConditionalSupplierLadder() {
+        final AtomicInteger input = new AtomicInteger();
+        final Supplier<Integer> inputSupplier = input::get;
+
+        final ConditionalTable<Integer, String> table = ConditionalTable.<Integer, String> If(inputSupplier)
+                .Equals(3).Then("three")
+                .LessThan(0).Then("negative")
+                .LessThanOrEquals(5).Then("small")
+                .Equals(7).Then("seven")
+                .GreaterThan(20).Then("large")
+                .GreaterThanOrEquals(10).Then("medium")
+                .Else("other");
+
+        final Supplier<String> ladder = ConditionalSupplier.<Integer, String> If(inputSupplier).Equals(3).Then("three")
+                .ElseGet(ConditionalSupplier.<Integer, String> If(inputSupplier).LessThan(0).Then("negative")
+                        .ElseGet(ConditionalSupplier.<Integer, String> If(inputSupplier).LessThanOrEquals(5).Then("small")
+                                .ElseGet(ConditionalSupplier.<Integer, String> If(inputSupplier).Equals(7).Then("seven")
+                                        .ElseGet(ConditionalSupplier.<Integer, String> If(inputSupplier).GreaterThan(20).Then("large")
+                                                .ElseGet(ConditionalSupplier.<Integer, String> If(inputSupplier).GreaterThanOrEquals(10).Then("medium")
+                                                        .Else("other"))))));
+
+        for (int i = -5; i <= 30; i++) {
+            input.set(i);
+            Assert.assertEquals("input " + i, ladder.get(), table.get());
+        }
+    }
+
+    @Test
+    public void testFirstMatchingRuleWins() {
+        final ConditionalTable<Integer, String> table = ConditionalTable.<Integer, String> If(5)
+                .GreaterThan(0).Then("first")
+                .Equals(5).Then("second")
+                .build();
+
+        Assert.assertEquals("first", table.get());
+    }
+
+    @Test
+    public void testNullInputSkipsRangeRules() {
+        final ConditionalTable<Integer, String> table = ConditionalTable.<Integer, String> If((Integer) null)
+                .GreaterThan(0).Then("positive")
+                .Equals(null).Then("null")
+                .Else("other");
+
+        Assert.assertEquals("null", table.get());
+    }
+
+    @Test
+    public void testBuildSnapshotsBuilder() {
+        final ConditionalTable.Builder<Integer, String> builder = ConditionalTable.<Integer, String> If(1)
+                .Equals(2).Then("two");
+        final ConditionalTable<Integer, String> before = builder.Else("none");
+
+        builder.Equals(1).Then("one");
+
+        Assert.assertEquals("none", before.get());
+        Assert.assertEquals("one", builder.Else("none").get());
+    }
+}
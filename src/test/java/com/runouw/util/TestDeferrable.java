@@ -0,0 +1,92 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestDeferrable {
+
+    @Test
+    public void testMap() {
+        final AtomicInteger calls = new AtomicInteger();
+        final Lazy<Integer> base = new Lazy<>(() -> 20);
+        final Lazy<String> mapped = base.map(value -> {
+            calls.incrementAndGet();
+            return "v" + value;
+        });
+
+        assertFalse(base.isInitialized());
+        assertEquals("v20", mapped.get());
+        assertEquals("v20", mapped.get());
+        assertEquals(1, calls.get());
+        assertTrue(base.isInitialized());
+        assertEquals(Arrays.asList(base), mapped.dependencies());
+    }
+
+    @Test
+    public void testFlatMap() {
+        final Lazy<Integer> base = new Lazy<>(() -> 3);
+        final Lazy<Integer> other = new Lazy<>(() -> 4);
+        final Lazy<Integer> flat = base.flatMap(value -> other.map(o -> value * o));
+
+        assertEquals(Integer.valueOf(12), flat.get());
+        assertEquals(Arrays.asList(base), flat.dependencies());
+    }
+
+    @Test
+    public void testZip() {
+        final Lazy<Integer> first = new Lazy<>(() -> 2);
+        final Lazy<String> second = new Lazy<>(() -> "x");
+        final Lazy<String> zipped = Deferrable.zip(first, second, (a, b) -> b + a);
+
+        assertEquals("x2", zipped.get());
+        assertEquals(Arrays.asList(first, second), zipped.dependencies());
+    }
+
+    @Test
+    public void testDependentCopiesArguments() {
+        final Lazy<Integer> first = new Lazy<>(() -> 1);
+        final Deferrable<?>[] dependencies = {first};
+        final Lazy<Integer> dependent = Lazy.dependent(() -> first.get() + 1, dependencies);
+
+        dependencies[0] = new Lazy<>(() -> 0);
+
+        assertSame(first, dependent.dependencies().iterator().next());
+        assertTrue(new Lazy<>(() -> 0).dependencies().isEmpty());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testDependentRejectsNull() {
+        Lazy.dependent(() -> 0, (Deferrable<?>) null);
+    }
+}
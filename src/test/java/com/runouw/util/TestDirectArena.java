@@ -0,0 +1,157 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestDirectArena {
+
+    private static final int CHUNK = 4096;
+
+    @Test
+    public void testAllocateRoundsToBlockSize() {
+        final DirectArena arena = new DirectArena(CHUNK);
+        final ByteBuffer block = arena.allocate(100);
+
+        Assert.assertTrue(block.isDirect());
+        Assert.assertEquals(0, block.position());
+        Assert.assertEquals(100, block.limit());
+        Assert.assertEquals(128, block.capacity());
+        Assert.assertEquals(128L, arena.getUsedBytes());
+        Assert.assertEquals(CHUNK, arena.getReservedBytes());
+    }
+
+    @Test
+    public void testBlocksDoNotOverlap() {
+        final DirectArena arena = new DirectArena(CHUNK);
+        final List<ByteBuffer> blocks = new ArrayList<>();
+
+        for (int i = 0; i < 64; i++) {
+            final ByteBuffer block = arena.allocate(64 + (i % 3) * 64);
+
+            while (block.hasRemaining()) {
+                block.put((byte) i);
+            }
+
+            blocks.add(block);
+        }
+
+        for (int i = 0; i < blocks.size(); i++) {
+            final ByteBuffer block = blocks.get(i);
+
+            for (int j = 0; j < block.limit(); j++) {
+                Assert.assertEquals((byte) i, block.get(j));
+            }
+        }
+    }
+
+    @Test
+    public void testReleasedBlocksAreReused() {
+        final DirectArena arena = new DirectArena(CHUNK);
+
+        for (int i = 0; i < 10000; i++) {
+            arena.release(arena.allocate(1000));
+        }
+
+        Assert.assertEquals(0L, arena.getUsedBytes());
+        Assert.assertEquals(CHUNK, arena.getReservedBytes());
+    }
+
+    @Test
+    public void testBuddiesCoalesce() {
+        final DirectArena arena = new DirectArena(CHUNK);
+        final List<ByteBuffer> small = new ArrayList<>();
+
+        for (int i = 0; i < CHUNK / 64; i++) {
+            small.add(arena.allocate(64));
+        }
+
+        Assert.assertEquals(CHUNK, arena.getReservedBytes());
+
+        for (ByteBuffer block : small) {
+            arena.release(block);
+        }
+
+        // the small blocks merged back into a block of the whole chunk.
+        final ByteBuffer whole = arena.allocate(CHUNK);
+
+        Assert.assertEquals(CHUNK, whole.capacity());
+        Assert.assertEquals(CHUNK, arena.getReservedBytes());
+    }
+
+    @Test
+    public void testEmptyChunksAreFreed() {
+        final DirectArena arena = new DirectArena(CHUNK);
+        final List<ByteBuffer> blocks = new ArrayList<>();
+
+        for (int i = 0; i < 4; i++) {
+            blocks.add(arena.allocate(CHUNK));
+        }
+
+        Assert.assertEquals(4L * CHUNK, arena.getReservedBytes());
+
+        for (ByteBuffer block : blocks) {
+            arena.release(block);
+        }
+
+        Assert.assertEquals(CHUNK, arena.getReservedBytes());
+    }
+
+    @Test
+    public void testOversizeAllocation() {
+        final DirectArena arena = new DirectArena(CHUNK);
+        final ByteBuffer block = arena.allocate(CHUNK * 3);
+
+        Assert.assertEquals(CHUNK * 3, block.limit());
+        Assert.assertEquals(CHUNK * 3L, arena.getReservedBytes());
+
+        arena.release(block);
+        Assert.assertEquals(0L, arena.getReservedBytes());
+        Assert.assertEquals(0L, arena.getUsedBytes());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDoubleReleaseThrows() {
+        final DirectArena arena = new DirectArena(CHUNK);
+        final ByteBuffer block = arena.allocate(64);
+
+        arena.release(block);
+        arena.release(block);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testForeignReleaseThrows() {
+        new DirectArena(CHUNK).release(ByteBuffer.allocateDirect(64));
+    }
+}
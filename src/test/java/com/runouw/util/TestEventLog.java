@@ -0,0 +1,116 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Runs twice: in the regular test task, where events are disabled, and in
+ * the testEventLog task, which sets -Dcom.runouw.util.events=true and
+ * -Dcom.runouw.util.events.capacity=64.
+ *
+ * @author zmichaels
+ */
+public class TestEventLog {
+
+    private static final int CAPACITY = 64;
+
+    @Test
+    public void testRecordsNothingWhenDisabled() {
+        Assume.assumeTrue(!EventLog.isEnabled());
+
+        new ReplaceableInt(0).set(1);
+        new Lazy<>(() -> "value").get();
+
+        assertTrue(EventLog.snapshot().isEmpty());
+    }
+
+    @Test
+    public void testWrapsAround() {
+        Assume.assumeTrue(EventLog.isEnabled());
+
+        final ReplaceableInt replaceable = new ReplaceableInt(0);
+        final int sourceId = System.identityHashCode(replaceable);
+
+        for (int i = 1; i <= CAPACITY * 3 + 5; i++) {
+            replaceable.set(i);
+        }
+
+        final List<EventLog.Event> events = EventLog.snapshot();
+
+        assertEquals(CAPACITY, events.size());
+
+        for (int i = 1; i < events.size(); i++) {
+            assertEquals(events.get(i - 1).getSequence() + 1, events.get(i).getSequence());
+        }
+
+        for (EventLog.Event event : events) {
+            assertEquals(EventLog.Type.REPLACE, event.getType());
+            assertEquals(ReplaceableInt.class, event.getSource());
+            assertEquals(sourceId, event.getSourceId());
+        }
+    }
+
+    @Test
+    public void testRecordsReplacements() {
+        Assume.assumeTrue(EventLog.isEnabled());
+
+        final ConcurrentReplaceable<String> concurrent = new ConcurrentReplaceable<>("a");
+        final ReplaceableBoolean flag = new ReplaceableBoolean(false);
+
+        concurrent.set("b");
+        concurrent.set("b");
+        flag.set(true);
+        flag.revertToDefault();
+
+        final List<EventLog.Event> events = EventLog.snapshot();
+        final int size = events.size();
+
+        assertEquals(ConcurrentReplaceable.class, events.get(size - 3).getSource());
+        assertEquals(ReplaceableBoolean.class, events.get(size - 2).getSource());
+        assertEquals(ReplaceableBoolean.class, events.get(size - 1).getSource());
+        assertEquals(EventLog.Type.REPLACE, events.get(size - 1).getType());
+    }
+
+    @Test
+    public void testLazyInitialization() {
+        Assume.assumeTrue(EventLog.isEnabled());
+
+        final Lazy<String> lazy = new Lazy<>(() -> "value");
+
+        lazy.get();
+
+        final List<EventLog.Event> events = EventLog.snapshot();
+        final EventLog.Event last = events.get(events.size() - 1);
+
+        assertEquals(EventLog.Type.INITIALIZE, last.getType());
+        assertEquals(System.identityHashCode(lazy), last.getSourceId());
+        assertTrue(last.getDuration() >= 0L);
+    }
+}
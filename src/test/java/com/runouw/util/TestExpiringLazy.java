@@ -0,0 +1,108 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestExpiringLazy {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        this.executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void testHugeTimeToLiveNeverExpires() {
+        final AtomicInteger calls = new AtomicInteger();
+        final ExpiringLazy<Integer> lazy = new ExpiringLazy<>(calls::incrementAndGet, Long.MAX_VALUE, TimeUnit.DAYS, this.executor);
+
+        lazy.setMaxStale(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+        Assert.assertEquals(1, (int) lazy.get());
+        Assert.assertTrue(lazy.isFresh());
+        Assert.assertEquals(1, (int) lazy.get());
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testStaleValueIsServedWhileRefreshing() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final ExpiringLazy<Integer> lazy = new ExpiringLazy<>(calls::incrementAndGet, 20, TimeUnit.MILLISECONDS, this.executor);
+
+        lazy.setMaxStale(1, TimeUnit.HOURS);
+
+        Assert.assertEquals(1, (int) lazy.get());
+        Thread.sleep(40);
+
+        Assert.assertFalse(lazy.isFresh());
+        Assert.assertEquals(1, (int) lazy.get());
+
+        this.executor.shutdown();
+        Assert.assertTrue(this.executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, (int) lazy.get());
+    }
+
+    @Test
+    public void testExpiredValueBlocks() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final ExpiringLazy<Integer> lazy = new ExpiringLazy<>(calls::incrementAndGet, 10, TimeUnit.MILLISECONDS, this.executor);
+
+        lazy.setMaxStale(0, TimeUnit.MILLISECONDS);
+
+        Assert.assertEquals(1, (int) lazy.get());
+        Thread.sleep(20);
+        Assert.assertEquals(2, (int) lazy.get());
+    }
+
+    @Test
+    public void testInvalidate() {
+        final AtomicInteger calls = new AtomicInteger();
+        final ExpiringLazy<Integer> lazy = new ExpiringLazy<>(calls::incrementAndGet, 1, TimeUnit.HOURS, this.executor);
+
+        Assert.assertEquals(1, (int) lazy.get());
+        lazy.invalidate();
+        Assert.assertFalse(lazy.isFresh());
+        Assert.assertEquals(2, (int) lazy.get());
+    }
+}
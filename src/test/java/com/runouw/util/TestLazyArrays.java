@@ -0,0 +1,171 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestLazyArrays {
+
+    @Test
+    public void testIntSlotsComputeOnce() {
+        final AtomicInteger calls = new AtomicInteger();
+        final LazyIntArray array = new LazyIntArray(130, index -> {
+            calls.incrementAndGet();
+            return index * 2;
+        });
+
+        assertEquals(130, array.length());
+        assertFalse(array.isInitialized(129));
+        assertEquals(258, array.get(129));
+        assertEquals(258, array.get(129));
+        assertEquals(1, calls.get());
+        assertTrue(array.isInitialized(129));
+        assertFalse(array.isInitialized(65));
+        assertEquals(1, array.getInitializedCount());
+    }
+
+    @Test
+    public void testIntInvalidate() {
+        final AtomicInteger offset = new AtomicInteger();
+        final LazyIntArray array = new LazyIntArray(10, index -> index + offset.get());
+
+        assertEquals(3, array.get(3));
+        offset.set(100);
+        assertEquals(3, array.get(3));
+
+        array.invalidate(3);
+
+        assertFalse(array.isInitialized(3));
+        assertEquals(103, array.get(3));
+
+        array.invalidateAll();
+
+        assertEquals(0, array.getInitializedCount());
+    }
+
+    @Test
+    public void testIntInitializeAll() {
+        final AtomicInteger calls = new AtomicInteger();
+        final LazyIntArray array = new LazyIntArray(70, index -> {
+            calls.incrementAndGet();
+            return -index;
+        });
+
+        array.get(5);
+        array.get(66);
+        array.initializeAll();
+
+        assertEquals(70, calls.get());
+        assertEquals(70, array.getInitializedCount());
+
+        final int[] values = array.toArray();
+
+        assertEquals(70, values.length);
+
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(-i, values[i]);
+        }
+
+        assertEquals(70, calls.get());
+    }
+
+    @Test
+    public void testIntBounds() {
+        final LazyIntArray array = new LazyIntArray(4, index -> index);
+
+        try {
+            array.get(4);
+            fail("expected an out of bounds index to fail");
+        } catch (ArrayIndexOutOfBoundsException ex) {
+            // expected
+        }
+
+        try {
+            array.get(-1);
+            fail("expected a negative index to fail");
+        } catch (ArrayIndexOutOfBoundsException ex) {
+            // expected
+        }
+
+        assertEquals(0, array.getInitializedCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIntNegativeLength() {
+        new LazyIntArray(-1, index -> index);
+    }
+
+    @Test
+    public void testDoubleSlotsComputeOnce() {
+        final AtomicInteger calls = new AtomicInteger();
+        final LazyDoubleArray array = new LazyDoubleArray(64, index -> {
+            calls.incrementAndGet();
+            return index * 0.5;
+        });
+
+        assertEquals(31.5, array.get(63), 0.0);
+        assertEquals(31.5, array.get(63), 0.0);
+        assertEquals(1, calls.get());
+        assertTrue(array.isInitialized(63));
+        assertEquals(1, array.getInitializedCount());
+    }
+
+    @Test
+    public void testDoubleInvalidateAndToArray() {
+        final LazyDoubleArray array = new LazyDoubleArray(65, index -> Math.sqrt(index));
+
+        assertEquals(8.0, array.get(64), 0.0);
+
+        array.invalidate(64);
+
+        assertFalse(array.isInitialized(64));
+
+        final double[] values = array.toArray();
+
+        assertEquals(65, values.length);
+        assertEquals(65, array.getInitializedCount());
+
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(Math.sqrt(i), values[i], 0.0);
+        }
+    }
+
+    @Test
+    public void testEmptyArray() {
+        final LazyDoubleArray array = new LazyDoubleArray(0, index -> index);
+
+        array.initializeAll();
+
+        assertEquals(0, array.length());
+        assertEquals(0, array.toArray().length);
+    }
+}
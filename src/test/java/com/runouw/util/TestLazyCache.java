@@ -0,0 +1,206 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestLazyCache {
+
+    @Test
+    public void testLoadsOnce() {
+        final AtomicInteger loads = new AtomicInteger();
+        final LazyCache<Integer, String> cache = new LazyCache<>(key -> {
+            loads.incrementAndGet();
+            return "v" + key;
+        }, 4);
+
+        assertEquals("v1", cache.get(1));
+        assertEquals("v1", cache.get(1));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        final LazyCache<Integer, Integer> cache = new LazyCache<>(key -> key, 8);
+
+        for (int i = 0; i < 100; i++) {
+            cache.get(i);
+            assertTrue(cache.size() <= 8);
+        }
+
+        assertEquals(8, cache.size());
+    }
+
+    @Test
+    public void testSalvageKeepsSizeBounded() {
+        final AtomicInteger loads = new AtomicInteger();
+        final List<String> held = new ArrayList<>();
+        final LazyCache<Integer, String> cache = new LazyCache<>(key -> {
+            loads.incrementAndGet();
+            return "v" + key;
+        }, 4);
+
+        cache.setSoftRetention(true);
+
+        // the values are held here so that their demoted copies survive.
+        for (int i = 0; i < 8; i++) {
+            held.add(cache.get(i));
+        }
+
+        for (int i = 0; i < 8; i++) {
+            assertSame(held.get(i), cache.get(i));
+            assertTrue(cache.size() <= 4);
+        }
+
+        assertEquals(8, loads.get());
+    }
+
+    @Test
+    public void testReferencedValueSurvivesEviction() {
+        final LazyCache<Integer, Integer> cache = new LazyCache<>(key -> key, 2);
+
+        cache.get(0);
+        cache.get(1);
+        // sweeps clear the reference bits of 0 and 1, then evict 0.
+        cache.get(2);
+
+        assertNull(cache.getIfPresent(0));
+        cache.get(1);
+        // 1 was referenced again, so the sweep passes over it and evicts 2.
+        cache.get(3);
+
+        assertEquals(Integer.valueOf(1), cache.getIfPresent(1));
+        assertNull(cache.getIfPresent(2));
+        assertEquals(Integer.valueOf(3), cache.getIfPresent(3));
+    }
+
+    @Test
+    public void testInvalidateDoesNotGrowClock() {
+        final LazyCache<Integer, Integer> cache = new LazyCache<>(key -> key, 16);
+
+        for (int i = 0; i < 10_000; i++) {
+            cache.get(i % 4);
+            cache.invalidate(i % 4);
+            cache.refresh(i % 8);
+        }
+
+        assertTrue("clock holds " + cache.clockSize() + " nodes", cache.clockSize() <= 256);
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        final LazyCache<Integer, Object> cache = new LazyCache<>(key -> {
+            loads.incrementAndGet();
+            Concurrently.pause(50);
+            return new Object();
+        }, 4);
+
+        final List<Object> values = Concurrently.run(8, () -> cache.get(7));
+
+        assertEquals(1, loads.get());
+
+        for (Object value : values) {
+            assertSame(values.get(0), value);
+        }
+    }
+
+    @Test
+    public void testConstructorMayLoadOtherKeys() throws Exception {
+        final AtomicReference<LazyCache<Integer, Integer>> ref = new AtomicReference<>();
+        final LazyCache<Integer, Integer> cache = new LazyCache<>(key -> {
+            Concurrently.pause(5);
+            return key == 0 ? 0 : key + ref.get().get(key - 1);
+        }, 64);
+
+        ref.set(cache);
+
+        final List<Integer> values = Concurrently.run(4, () -> cache.get(32));
+
+        for (Integer value : values) {
+            assertEquals(Integer.valueOf(32 * 33 / 2), value);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRecursiveLoadFails() {
+        final AtomicReference<LazyCache<Integer, Integer>> ref = new AtomicReference<>();
+        final LazyCache<Integer, Integer> cache = new LazyCache<>(key -> ref.get().get(key), 4);
+
+        ref.set(cache);
+        cache.get(1);
+    }
+
+    @Test
+    public void testFailureIsNotCached() {
+        final AtomicInteger loads = new AtomicInteger();
+        final LazyCache<Integer, Integer> cache = new LazyCache<>(key -> {
+            if (loads.incrementAndGet() == 1) {
+                throw new IllegalArgumentException("first load fails");
+            }
+
+            return key;
+        }, 4);
+
+        try {
+            cache.get(1);
+            fail("expected the first load to fail");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+
+        assertEquals(Integer.valueOf(1), cache.get(1));
+    }
+
+    @Test
+    public void testFailuresDoNotGrowMap() {
+        final LazyCache<Integer, Integer> cache = new LazyCache<>(key -> {
+            throw new IllegalArgumentException("load fails");
+        }, 16);
+
+        for (int i = 0; i < 10_000; i++) {
+            try {
+                cache.get(i);
+                fail("expected the load to fail");
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+
+        assertEquals(0, cache.nodeCount());
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,177 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestLazyGroup {
+
+    @Test
+    public void testDependenciesInitializeFirst() {
+        final List<String> order = Collections.synchronizedList(new ArrayList<>());
+        final Lazy<Integer> a = new Lazy<>(() -> {
+            order.add("a");
+            return 1;
+        });
+        final Lazy<Integer> b = new Lazy<>(() -> {
+            order.add("b");
+            return 2;
+        });
+        final Lazy<Integer> sum = Deferrable.zip(a, b, (x, y) -> {
+            order.add("sum");
+            return x + y;
+        });
+
+        new LazyGroup().add(sum).initializeAll().join();
+
+        assertTrue(a.isInitialized());
+        assertTrue(b.isInitialized());
+        assertTrue(sum.isInitialized());
+        assertEquals(3, order.size());
+        assertEquals("sum", order.get(2));
+        assertEquals(Integer.valueOf(3), sum.get());
+    }
+
+    @Test
+    public void testSharedDependencyInitializesOnce() {
+        final AtomicInteger calls = new AtomicInteger();
+        final Lazy<Integer> shared = new Lazy<>(calls::incrementAndGet);
+        final Lazy<Integer> left = shared.map(x -> x + 1);
+        final Lazy<Integer> right = shared.map(x -> x + 2);
+
+        new LazyGroup().add(left, right, shared).initializeAll().join();
+
+        assertEquals(1, calls.get());
+        assertEquals(Integer.valueOf(2), left.get());
+        assertEquals(Integer.valueOf(3), right.get());
+    }
+
+    @Test
+    public void testIndependentBranchesRunInParallel() {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        final Lazy<Boolean> left = new Lazy<>(() -> await(bothStarted));
+        final Lazy<Boolean> right = new Lazy<>(() -> await(bothStarted));
+
+        try {
+            new LazyGroup().add(left, right).initializeAll(executor).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(left.get());
+        assertTrue(right.get());
+    }
+
+    @Test
+    public void testFailureSkipsDependents() {
+        final Lazy<Integer> failing = new Lazy<>(() -> {
+            throw new IllegalArgumentException("failed");
+        });
+        final Lazy<Integer> dependent = failing.map(x -> x + 1);
+
+        try {
+            new LazyGroup().add(dependent).initializeAll().join();
+            fail("expected the group to fail");
+        } catch (CompletionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalArgumentException);
+        }
+
+        assertFalse(dependent.isInitialized());
+    }
+
+    @Test
+    public void testCycleIsRejected() {
+        final Deferrable<?>[] other = new Deferrable<?>[1];
+        final AtomicInteger calls = new AtomicInteger();
+        final Deferrable<Integer> first = new Cyclic(calls, other);
+        final Deferrable<Integer> second = new Cyclic(calls, new Deferrable<?>[]{first});
+
+        other[0] = second;
+
+        try {
+            new LazyGroup().add(first).initializeAll();
+            fail("expected the cycle to be rejected");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+
+        assertEquals(0, calls.get());
+    }
+
+    private static boolean await(final CountDownLatch latch) {
+        latch.countDown();
+
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static final class Cyclic implements Deferrable<Integer> {
+
+        private final AtomicInteger calls;
+        private final Deferrable<?>[] dependencies;
+
+        private Cyclic(final AtomicInteger calls, final Deferrable<?>[] dependencies) {
+            this.calls = calls;
+            this.dependencies = dependencies;
+        }
+
+        @Override
+        public Integer get() {
+            return this.calls.incrementAndGet();
+        }
+
+        @Override
+        public Integer restore() {
+            return this.get();
+        }
+
+        @Override
+        public Collection<Deferrable<?>> dependencies() {
+            return Arrays.asList(this.dependencies);
+        }
+    }
+}
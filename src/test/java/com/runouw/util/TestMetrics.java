@@ -0,0 +1,138 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestMetrics {
+
+    @Test
+    public void testLazyRecordsInitialization() {
+        final WrapperMetrics metrics = new MetricsRegistry().metrics("lazy");
+        final Lazy<Object> lazy = new Lazy<>(Object::new);
+
+        lazy.setMetrics(metrics);
+        lazy.get();
+        lazy.get();
+        lazy.restore();
+
+        Assert.assertEquals(2L, metrics.getInitializations());
+        Assert.assertEquals(2L, metrics.getInitializationLatency().getCount());
+    }
+
+    @Test
+    public void testUnloadableRecordsLifecycle() {
+        final WrapperMetrics metrics = new MetricsRegistry().metrics("unloadable");
+        final Unloadable<Object> unloadable = Unloadable.salvagedReload(null, Object::new);
+
+        unloadable.setMetrics(metrics);
+
+        final Object first = unloadable.get();
+
+        unloadable.get();
+        unloadable.unload();
+        Assert.assertSame(first, unloadable.get());
+
+        Assert.assertEquals(1L, metrics.getRestores());
+        Assert.assertEquals(1L, metrics.getHits());
+        Assert.assertEquals(1L, metrics.getUnloads());
+        Assert.assertEquals(1L, metrics.getSalvages());
+    }
+
+    @Test
+    public void testOffHeapUnloadableRecordsLifecycle() {
+        final WrapperMetrics metrics = new MetricsRegistry().metrics("offheap");
+        final OffHeapUnloadable unloadable = new OffHeapUnloadable(new DirectArena(4096), () -> ByteBuffer.wrap(new byte[100]));
+
+        unloadable.setMetrics(metrics);
+        unloadable.get();
+        unloadable.get();
+        unloadable.unload();
+        unloadable.get();
+
+        Assert.assertEquals(2L, metrics.getRestores());
+        Assert.assertEquals(1L, metrics.getHits());
+        Assert.assertEquals(1L, metrics.getUnloads());
+    }
+
+    @Test
+    public void testReplaceableRecordsReplaces() {
+        final WrapperMetrics metrics = new MetricsRegistry().metrics("replaceable");
+        final Replaceable<String> replaceable = new Replaceable<>("a");
+
+        replaceable.setMetrics(metrics);
+        replaceable.set("b");
+        replaceable.set("c");
+
+        Assert.assertEquals(2L, metrics.getReplaces());
+
+        metrics.reset();
+        Assert.assertEquals(0L, metrics.getReplaces());
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100L);
+        }
+
+        histogram.record(1_000_000L);
+
+        Assert.assertEquals(100L, histogram.getCount());
+        Assert.assertEquals((99 * 100L + 1_000_000L) / 100.0, histogram.getMeanNanos(), 0.001);
+        // percentiles report the upper bound of their power-of-two bucket.
+        Assert.assertEquals(127L, histogram.getPercentileNanos(99.0));
+        Assert.assertEquals((1L << 20) - 1L, histogram.getPercentileNanos(100.0));
+    }
+
+    @Test
+    public void testRegistryPublishesMXBeans() throws Exception {
+        final MetricsRegistry registry = new MetricsRegistry();
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        registry.metrics("published").recordHit();
+        registry.publish();
+
+        try {
+            final ObjectName name = new ObjectName("com.runouw.util:type=WrapperMetrics,name=" + ObjectName.quote("published"));
+
+            Assert.assertEquals(1L, server.getAttribute(name, "Hits"));
+        } finally {
+            registry.unpublish();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestReclaim {
+
+    /**
+     * Collects garbage until at least one reclaimed reference is drained.
+     */
+    private static int collectAndDrain() {
+        for (int i = 0; i < 50; i++) {
+            System.gc();
+            Concurrently.pause(10);
+
+            final int drained = Unloadable.drainReclaimed();
+
+            if (drained > 0) {
+                return drained;
+            }
+        }
+
+        return 0;
+    }
+
+    @Test
+    public void testQueuedReferenceDoesNotHoldOwner() {
+        ConcurrentUnloadable<Object> unloadable = ConcurrentUnloadable.salvagedReload(null, Object::new);
+
+        unloadable.setOnReclaim(() -> { });
+        unloadable.get();
+        unloadable.unload();
+
+        final WeakReference<ConcurrentUnloadable<Object>> owner = new WeakReference<>(unloadable);
+
+        unloadable = null;
+
+        for (int i = 0; i < 50 && owner.get() != null; i++) {
+            System.gc();
+            Concurrently.pause(10);
+        }
+
+        Assert.assertNull(owner.get());
+        Unloadable.drainReclaimed();
+    }
+
+    @Test
+    public void testUnloadDoesNotDrain() {
+        final ConcurrentUnloadable<Object> reclaimed = ConcurrentUnloadable.salvagedReload(null, Object::new);
+        final Unloadable<Object> other = Unloadable.eagerUnload(null, Object::new);
+
+        reclaimed.setOnReclaim(() -> { });
+        reclaimed.get();
+        reclaimed.unload();
+
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Concurrently.pause(10);
+        }
+
+        other.get();
+        other.unload();
+
+        Assert.assertTrue(collectAndDrain() > 0);
+    }
+
+    @Test
+    public void testConcurrentUnloadableRewarms() {
+        final AtomicInteger restores = new AtomicInteger();
+        final AtomicInteger reclaims = new AtomicInteger();
+        final ConcurrentUnloadable<Object> unloadable = ConcurrentUnloadable.salvagedReload(null, () -> {
+            restores.incrementAndGet();
+            return new Object();
+        });
+
+        unloadable.setOnReclaim(reclaims::incrementAndGet);
+        unloadable.setRewarmOnReclaim(true);
+        unloadable.get();
+        unloadable.unload();
+
+        Assert.assertTrue(collectAndDrain() > 0);
+        Assert.assertEquals(1, reclaims.get());
+        Assert.assertTrue(unloadable.isPresent());
+        Assert.assertEquals(2, restores.get());
+    }
+}
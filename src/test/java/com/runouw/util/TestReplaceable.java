@@ -0,0 +1,121 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestReplaceable {
+
+    @Test
+    public void testMemoizedDefaultIsComputedOnce() {
+        final AtomicInteger calls = new AtomicInteger();
+        final Replaceable<String> replaceable = Replaceable.memoized(() -> {
+            calls.incrementAndGet();
+            return "default";
+        });
+
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals("default", replaceable.get());
+            Assert.assertTrue(replaceable.isDefault());
+        }
+
+        replaceable.set("other");
+        Assert.assertFalse(replaceable.isDefault());
+        replaceable.set(new String("default"));
+        Assert.assertTrue(replaceable.isDefault());
+        Assert.assertTrue(replaceable.isReplaced());
+
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testInvalidateDefault() {
+        final AtomicInteger calls = new AtomicInteger();
+        final Replaceable<Integer> replaceable = Replaceable.memoized(calls::incrementAndGet);
+
+        Assert.assertEquals(1, (int) replaceable.get());
+        replaceable.invalidateDefault();
+        Assert.assertEquals(2, (int) replaceable.get());
+        Assert.assertEquals(2, (int) replaceable.get());
+    }
+
+    @Test
+    public void testSupplierDefaultIsNotMemoized() {
+        final AtomicInteger calls = new AtomicInteger();
+        final Replaceable<Integer> replaceable = new Replaceable<>(calls::incrementAndGet);
+
+        Assert.assertEquals(1, (int) replaceable.get());
+        Assert.assertEquals(2, (int) replaceable.get());
+    }
+
+    @Test
+    public void testConstantDefaultIsCheckedOnEachCall() {
+        final Replaceable<List<String>> replaceable = new Replaceable<>(Singletons.of(new ArrayList<>()));
+        final List<String> value = new ArrayList<>();
+
+        replaceable.set(value);
+        Assert.assertTrue(replaceable.isDefault());
+
+        // the value is mutated after it was set.
+        value.add("other");
+        Assert.assertFalse(replaceable.isDefault());
+    }
+
+    @Test
+    public void testValueDefaultIsCheckedOnEachCall() {
+        final Replaceable<List<String>> replaceable = new Replaceable<>(new ArrayList<>());
+        final List<String> value = new ArrayList<>();
+
+        replaceable.set(value);
+        Assert.assertTrue(replaceable.isDefault());
+
+        // the value is mutated after it was set.
+        value.add("other");
+        Assert.assertFalse(replaceable.isDefault());
+    }
+
+    @Test
+    public void testRevertToDefault() {
+        final Replaceable<String> replaceable = new Replaceable<>("default");
+        final StringBuilder seen = new StringBuilder();
+
+        replaceable.setOnReplace(seen::append);
+        replaceable.set("other");
+        replaceable.revertToDefault();
+
+        Assert.assertEquals("default", replaceable.get());
+        Assert.assertFalse(replaceable.isReplaced());
+        Assert.assertEquals("otherdefault", seen.toString());
+    }
+}
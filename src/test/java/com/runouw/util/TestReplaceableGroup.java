@@ -0,0 +1,118 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestReplaceableGroup {
+
+    @Test
+    public void testCommitAppliesAndCoalesces() {
+        final ReplaceableGroup group = new ReplaceableGroup();
+        final Replaceable<String> a = new Replaceable<>("a");
+        final Replaceable<String> b = new Replaceable<>("b");
+        final AtomicInteger callbacks = new AtomicInteger();
+
+        a.setOnReplace(value -> callbacks.incrementAndGet());
+
+        final List<ReplaceableGroup.Change<?>> changes = group.begin()
+                .set(a, "a1")
+                .set(a, "a2")
+                .set(b, "b1")
+                .commit();
+
+        Assert.assertEquals("a2", a.get());
+        Assert.assertEquals("b1", b.get());
+        Assert.assertEquals(2, changes.size());
+        Assert.assertEquals("a", changes.get(0).getPrevious());
+        Assert.assertEquals("a2", changes.get(0).getCurrent());
+        Assert.assertEquals(1, callbacks.get());
+    }
+
+    @Test
+    public void testRollbackDiscardsChanges() {
+        final ReplaceableGroup group = new ReplaceableGroup();
+        final Replaceable<String> a = new Replaceable<>("a");
+        final AtomicInteger commits = new AtomicInteger();
+
+        group.setOnCommit(changes -> commits.incrementAndGet());
+
+        final ReplaceableGroup.Transaction transaction = group.begin().set(a, "a1");
+
+        transaction.rollback();
+
+        Assert.assertEquals("a", a.get());
+        Assert.assertEquals(0, commits.get());
+
+        try {
+            transaction.commit();
+            Assert.fail("Expected a finished transaction to reject commit!");
+        } catch (IllegalStateException ex) {
+            Assert.assertEquals("a", a.get());
+        }
+    }
+
+    @Test
+    public void testListenerAndCallerShareImmutableChanges() {
+        final ReplaceableGroup group = new ReplaceableGroup(Runnable::run);
+        final Replaceable<Integer> a = new Replaceable<>(0);
+        final AtomicReference<List<ReplaceableGroup.Change<?>>> received = new AtomicReference<>();
+
+        group.setOnCommit(received::set);
+
+        final List<ReplaceableGroup.Change<?>> changes = group.begin().set(a, 1).commit();
+
+        Assert.assertSame(changes, received.get());
+
+        try {
+            changes.clear();
+            Assert.fail("Expected the committed changes to be immutable!");
+        } catch (UnsupportedOperationException ex) {
+            Assert.assertEquals(1, received.get().size());
+        }
+    }
+
+    @Test
+    public void testCommitWithoutChangesDoesNotNotify() {
+        final ReplaceableGroup group = new ReplaceableGroup();
+        final Replaceable<String> a = new Replaceable<>("a");
+        final List<Object> notified = new ArrayList<>();
+
+        group.setOnCommit(notified::add);
+
+        Assert.assertTrue(group.begin().set(a, null).commit().isEmpty());
+        Assert.assertTrue(notified.isEmpty());
+    }
+}
@@ -0,0 +1,92 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestReplaceablePrimitives {
+
+    @Test
+    public void testIntCallbackRunsBeforeAssignment() {
+        final ReplaceableInt replaceable = new ReplaceableInt(() -> 1);
+        final List<String> seen = new ArrayList<>();
+
+        replaceable.setOnReplace(value -> seen.add(replaceable.getAsInt() + "->" + value));
+        replaceable.set(2);
+        replaceable.set(2);
+        replaceable.revertToDefault();
+
+        Assert.assertEquals(1, replaceable.getAsInt());
+        Assert.assertEquals("[1->2, 2->1]", seen.toString());
+    }
+
+    @Test
+    public void testLongCallbackRunsBeforeAssignment() {
+        final ReplaceableLong replaceable = new ReplaceableLong(() -> 1L);
+        final List<String> seen = new ArrayList<>();
+
+        replaceable.setOnReplace(value -> seen.add(replaceable.getAsLong() + "->" + value));
+        replaceable.set(Long.MAX_VALUE);
+        replaceable.revertToDefault();
+        replaceable.revertToDefault();
+
+        Assert.assertEquals("[1->" + Long.MAX_VALUE + ", " + Long.MAX_VALUE + "->1]", seen.toString());
+    }
+
+    @Test
+    public void testDoubleComparesBits() {
+        final ReplaceableDouble replaceable = new ReplaceableDouble(() -> 0.0);
+        final List<String> seen = new ArrayList<>();
+
+        replaceable.setOnReplace(value -> seen.add(replaceable.getAsDouble() + "->" + value));
+        replaceable.set(Double.NaN);
+        replaceable.set(Double.NaN);
+        replaceable.set(-0.0);
+
+        Assert.assertEquals("[0.0->NaN, NaN->-0.0]", seen.toString());
+        Assert.assertTrue(replaceable.isReplaced());
+    }
+
+    @Test
+    public void testBooleanCallbackRunsBeforeAssignment() {
+        final ReplaceableBoolean replaceable = new ReplaceableBoolean(() -> false);
+        final List<String> seen = new ArrayList<>();
+
+        replaceable.setOnReplace(value -> seen.add(replaceable.getAsBoolean() + "->" + value));
+        replaceable.set(true);
+        replaceable.revertToDefault();
+
+        Assert.assertFalse(replaceable.getAsBoolean());
+        Assert.assertEquals("[false->true, true->false]", seen.toString());
+    }
+}
@@ -0,0 +1,91 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestSingletons {
+
+    @Test
+    public void testSmallValuesAreShared() {
+        assertSame(Singletons.of((Object) null), Singletons.of((String) null));
+        assertSame(Singletons.of(Boolean.TRUE), Singletons.of(Boolean.TRUE));
+        assertSame(Singletons.of(127), Singletons.of(127));
+        assertSame(Singletons.of(-128L), Singletons.of(-128L));
+        assertSame(Singletons.of(1.0), Singletons.of(1.0));
+        assertNotSame(Singletons.of(-0.0), Singletons.of(0.0));
+        assertEquals(1000, Singletons.of(1000).getAsInt());
+        assertTrue(Singletons.of("a") instanceof Singletons.Constant);
+        assertTrue(Singletons.of(1000L) instanceof Singletons.ConstantLong);
+        assertTrue(Singletons.of(2.5) instanceof Singletons.ConstantDouble);
+    }
+
+    @Test
+    public void testLazyConstantKeepsLifecycle() {
+        final Lazy<String> lazy = new Lazy<>(Singletons.of("value"));
+        final WrapperMetrics metrics = new WrapperMetrics();
+        final List<String> initialized = new ArrayList<>();
+
+        lazy.setMetrics(metrics);
+        lazy.setOnInitialize(initialized::add);
+
+        assertFalse(lazy.isInitialized());
+        assertEquals("value", lazy.get());
+        assertEquals("value", lazy.get());
+        assertTrue(lazy.isInitialized());
+        assertEquals("[value]", initialized.toString());
+        assertEquals(1, metrics.getInitializations());
+    }
+
+    @Test
+    public void testConstantPrimitiveDefaults() {
+        final ReplaceableInt replaceableInt = new ReplaceableInt(7);
+        final ReplaceableLong replaceableLong = new ReplaceableLong(Singletons.of(1L << 40));
+        final ReplaceableDouble replaceableDouble = new ReplaceableDouble(Double.NaN);
+
+        assertEquals(7, replaceableInt.getAsInt());
+        replaceableInt.set(7);
+        assertTrue(replaceableInt.isDefault());
+        replaceableInt.set(8);
+        assertFalse(replaceableInt.isDefault());
+        replaceableInt.revertToDefault();
+        assertEquals(7, replaceableInt.getAsInt());
+
+        assertEquals(1L << 40, replaceableLong.getAsLong());
+        assertTrue(replaceableLong.isDefault());
+
+        assertTrue(Double.isNaN(replaceableDouble.getAsDouble()));
+        replaceableDouble.set(Double.NaN);
+        assertTrue(replaceableDouble.isDefault());
+    }
+}
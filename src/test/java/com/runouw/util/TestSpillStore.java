@@ -0,0 +1,123 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestSpillStore {
+
+    private SpillStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        this.store = SpillStore.createTemp();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.store.close();
+    }
+
+    private static byte[] pattern(final int length, final int seed) {
+        final byte[] data = new byte[length];
+
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (seed + i);
+        }
+
+        return data;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        final List<SpillStore.Region> regions = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            regions.add(this.store.write(pattern(i * 37 + 1, i)));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            final ByteBuffer snapshot = regions.get(i).read();
+            final byte[] out = new byte[snapshot.remaining()];
+
+            snapshot.get(out);
+            Assert.assertArrayEquals(pattern(i * 37 + 1, i), out);
+        }
+    }
+
+    @Test
+    public void testReleasedRegionsAreReused() {
+        for (int i = 0; i < 10000; i++) {
+            this.store.write(pattern(1000, i)).release();
+        }
+
+        Assert.assertEquals(1024L, this.store.size());
+        Assert.assertEquals(0L, this.store.getLiveBytes());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleasedRegionCannotBeRead() {
+        final SpillStore.Region region = this.store.write(pattern(10, 0));
+
+        region.release();
+        region.read();
+    }
+
+    @Test
+    public void testUnloadableRestoresFromSnapshot() {
+        final AtomicInteger restores = new AtomicInteger();
+        final Unloadable<byte[]> unloadable = Unloadable.eagerUnload(null, () -> {
+            restores.incrementAndGet();
+            return pattern(500, 7);
+        });
+
+        unloadable.setSpill(this.store, SpillCodec.bytes());
+
+        for (int i = 0; i < 10; i++) {
+            Assert.assertArrayEquals(pattern(500, 7), unloadable.get());
+            unloadable.unload();
+        }
+
+        Assert.assertEquals(1, restores.get());
+        Assert.assertTrue(unloadable.isSpilled());
+        Assert.assertEquals(512L, this.store.getLiveBytes());
+
+        unloadable.discardSpill();
+        Assert.assertEquals(0L, this.store.getLiveBytes());
+    }
+}
@@ -0,0 +1,167 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestTimingWheel {
+
+    private static final class Recorder extends TimingWheel.Timer {
+
+        private final List<Recorder> expired;
+        private final CountDownLatch done;
+        private final int deadline;
+        private volatile int expiredAt;
+
+        private Recorder(final List<Recorder> expired, final CountDownLatch done, final int deadline) {
+            this.expired = expired;
+            this.done = done;
+            this.deadline = deadline;
+        }
+
+        @Override
+        int expire(final int now) {
+            this.expiredAt = now;
+            this.expired.add(this);
+            this.done.countDown();
+            return now;
+        }
+    }
+
+    @Test
+    public void testExpiresInOrder() throws InterruptedException {
+        final TimingWheel wheel = new TimingWheel("test", 1L, TimeUnit.MILLISECONDS);
+        final List<Recorder> expired = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(3);
+        final int start = wheel.now();
+        final Recorder late = new Recorder(expired, done, start + 40);
+        final Recorder early = new Recorder(expired, done, start + 5);
+        final Recorder middle = new Recorder(expired, done, start + 20);
+
+        wheel.schedule(late, late.deadline);
+        wheel.schedule(early, early.deadline);
+        wheel.schedule(middle, middle.deadline);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(early, expired.get(0));
+        assertEquals(middle, expired.get(1));
+        assertEquals(late, expired.get(2));
+
+        for (Recorder recorder : expired) {
+            assertTrue(recorder.expiredAt - recorder.deadline >= 0);
+        }
+    }
+
+    @Test
+    public void testCascadesFromHigherLevels() throws InterruptedException {
+        // 100 microsecond ticks put 5000 ticks on the third level.
+        final TimingWheel wheel = new TimingWheel("test", 100L, TimeUnit.MICROSECONDS);
+        final List<Recorder> expired = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(3);
+        final int start = wheel.now();
+        final Recorder levelZero = new Recorder(expired, done, start + 10);
+        final Recorder levelOne = new Recorder(expired, done, start + 100);
+        final Recorder levelTwo = new Recorder(expired, done, start + 5000);
+        final long begin = System.nanoTime();
+
+        wheel.schedule(levelTwo, levelTwo.deadline);
+        wheel.schedule(levelOne, levelOne.deadline);
+        wheel.schedule(levelZero, levelZero.deadline);
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - begin >= TimeUnit.MILLISECONDS.toNanos(450));
+        assertEquals(levelZero, expired.get(0));
+        assertEquals(levelOne, expired.get(1));
+        assertEquals(levelTwo, expired.get(2));
+
+        for (Recorder recorder : expired) {
+            assertTrue(recorder.expiredAt - recorder.deadline >= 0);
+        }
+    }
+
+    @Test
+    public void testRescheduleAndCancel() throws InterruptedException {
+        final TimingWheel wheel = new TimingWheel("test", 1L, TimeUnit.MILLISECONDS);
+        final AtomicInteger expirations = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(3);
+        final TimingWheel.Timer repeating = new TimingWheel.Timer() {
+            @Override
+            int expire(final int now) {
+                done.countDown();
+                return expirations.incrementAndGet() < 3 ? now + 5 : now;
+            }
+        };
+        final AtomicBoolean isCancelledExpired = new AtomicBoolean();
+        final TimingWheel.Timer cancelled = new TimingWheel.Timer() {
+            @Override
+            int expire(final int now) {
+                isCancelledExpired.set(true);
+                return now;
+            }
+        };
+
+        wheel.schedule(cancelled, wheel.now() + 10);
+        cancelled.cancel();
+        wheel.schedule(repeating, wheel.now() + 5);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        Concurrently.pause(50);
+        assertEquals(3, expirations.get());
+        assertFalse(isCancelledExpired.get());
+    }
+
+    @Test
+    public void testClockAdvancesWhileIdle() {
+        final TimingWheel wheel = new TimingWheel("test", 1L, TimeUnit.MILLISECONDS);
+
+        // the wheel has never run, so only the clock moves.
+        Concurrently.pause(20);
+
+        assertEquals(0, wheel.now());
+        assertTrue(wheel.clock() >= 20);
+    }
+
+    @Test
+    public void testToTicks() {
+        final TimingWheel wheel = new TimingWheel("test", 10L, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, wheel.toTicks(0L, TimeUnit.MILLISECONDS));
+        assertEquals(1, wheel.toTicks(10L, TimeUnit.MILLISECONDS));
+        assertEquals(2, wheel.toTicks(11L, TimeUnit.MILLISECONDS));
+        assertEquals((1 << 24) - 1, wheel.toTicks(365L, TimeUnit.DAYS));
+    }
+}
@@ -0,0 +1,157 @@
+/* 
+ * Copyright (c) 2015, Zachary Michaels
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.runouw.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author zmichaels
+ */
+public class TestUnloadableManager {
+
+    private static ConcurrentUnloadable<long[]> block(final int size) {
+        return ConcurrentUnloadable.eagerUnload(null, () -> new long[size]);
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        final UnloadableManager manager = new UnloadableManager(30L);
+        final ConcurrentUnloadable<long[]> a = manager.register(block(10), array -> array.length);
+        final ConcurrentUnloadable<long[]> b = manager.register(block(10), array -> array.length);
+        final ConcurrentUnloadable<long[]> c = manager.register(block(10), array -> array.length);
+        final ConcurrentUnloadable<long[]> d = manager.register(block(10), array -> array.length);
+
+        a.get();
+        b.get();
+        c.get();
+        Assert.assertEquals(30L, manager.getTotalWeight());
+
+        d.get();
+        Assert.assertFalse(a.isPresent());
+        Assert.assertTrue(b.isPresent());
+        Assert.assertEquals(30L, manager.getTotalWeight());
+    }
+
+    @Test
+    public void testTouchProtectsFromEviction() {
+        final UnloadableManager manager = new UnloadableManager(20L);
+        final ConcurrentUnloadable<long[]> a = manager.register(block(10), array -> array.length);
+        final ConcurrentUnloadable<long[]> b = manager.register(block(10), array -> array.length);
+        final ConcurrentUnloadable<long[]> c = manager.register(block(10), array -> array.length);
+
+        a.get();
+        b.get();
+        a.get();
+        c.get();
+
+        Assert.assertTrue(a.isPresent());
+        Assert.assertFalse(b.isPresent());
+        Assert.assertTrue(c.isPresent());
+    }
+
+    @Test
+    public void testAccessesBetweenLoadsAreOrdered() {
+        final UnloadableManager manager = new UnloadableManager(30L);
+        final ConcurrentUnloadable<long[]> a = manager.register(block(10), array -> array.length);
+        final ConcurrentUnloadable<long[]> b = manager.register(block(10), array -> array.length);
+        final ConcurrentUnloadable<long[]> c = manager.register(block(10), array -> array.length);
+        final ConcurrentUnloadable<long[]> d = manager.register(block(10), array -> array.length);
+
+        a.get();
+        b.get();
+        c.get();
+        // no loads happen between these, so only the accesses order them.
+        b.get();
+        c.get();
+        a.get();
+        d.get();
+
+        Assert.assertTrue(a.isPresent());
+        Assert.assertFalse(b.isPresent());
+        Assert.assertTrue(c.isPresent());
+    }
+
+    @Test
+    public void testTrimAndUnregister() {
+        final UnloadableManager manager = new UnloadableManager(100L);
+        final List<ConcurrentUnloadable<long[]>> all = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            all.add(manager.register(block(10), array -> array.length));
+            all.get(i).get();
+        }
+
+        Assert.assertEquals(100L, manager.getTotalWeight());
+
+        manager.unregister(all.get(9));
+        Assert.assertEquals(90L, manager.getTotalWeight());
+
+        manager.trimTo(45L);
+        Assert.assertEquals(40L, manager.getTotalWeight());
+        Assert.assertFalse(all.get(0).isPresent());
+        Assert.assertTrue(all.get(8).isPresent());
+        Assert.assertTrue(all.get(9).isPresent());
+
+        all.get(0).unload();
+        Assert.assertEquals(40L, manager.getTotalWeight());
+    }
+
+    @Test
+    public void testStaysWithinBudgetUnderContention() throws Exception {
+        final UnloadableManager manager = new UnloadableManager(50L);
+        final List<ConcurrentUnloadable<long[]>> all = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            all.add(manager.register(block(10), array -> array.length));
+        }
+
+        Concurrently.run(8, () -> {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+            for (int i = 0; i < 10000; i++) {
+                all.get(random.nextInt(all.size())).get();
+            }
+
+            return null;
+        });
+
+        long loaded = 0L;
+
+        for (ConcurrentUnloadable<long[]> unloadable : all) {
+            if (unloadable.isPresent()) {
+                loaded += 10L;
+            }
+        }
+
+        Assert.assertEquals(loaded, manager.getTotalWeight());
+        Assert.assertTrue(manager.getTotalWeight() <= 50L);
+    }
+}